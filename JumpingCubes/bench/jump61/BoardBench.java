@@ -0,0 +1,134 @@
+package jump61;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the Board operations used on every move and in every
+ * search node: single moves, long cascades, copying, and testing for a
+ * winner.  Moves are made with makeMove and taken back with unmakeMove,
+ * so each invocation starts from the same position; the time reported
+ * includes the undo.
+ *
+ * @author Aniketh Prasad
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBench {
+
+    /**
+     * Name of the stored position (see Positions) used by the
+     * single-move, copying, and winner benchmarks.
+     */
+    @Param({ "6x6-30", "10x10-60" })
+    public String position;
+
+    /**
+     * Set up the boards for a trial.
+     */
+    @Setup
+    public void setup() {
+        _board = Positions.position(position);
+        _copy = new Board(_board.size());
+        _cascade = Positions.fullCascade(Defaults.MAX_BOARD_SIZE);
+        _moves = new int[_board.size() * _board.size()];
+        _numMoves = 0;
+        for (int n = 0; n < _moves.length; n += 1) {
+            if (_board.isLegal(_board.whoseMove(), n)) {
+                _moves[_numMoves] = n;
+                _numMoves += 1;
+            }
+        }
+    }
+
+    /**
+     * Make and take back one move, cycling through the legal moves of
+     * the stored position.
+     */
+    @Benchmark
+    public long addSpot() {
+        _next = _next + 1 == _numMoves ? 0 : _next + 1;
+        int token = _board.makeMove(_board.whoseMove(), _moves[_next]);
+        long hash = _board.positionHash();
+        _board.unmakeMove(token);
+        return hash;
+    }
+
+    /**
+     * Make and take back the move that sets off the longest cascade on
+     * a 10x10 board (see Positions.fullCascade).
+     */
+    @Benchmark
+    public long cascade() {
+        int token = _cascade.makeMove(_cascade.whoseMove(), 0);
+        long hash = _cascade.positionHash();
+        _cascade.unmakeMove(token);
+        return hash;
+    }
+
+    /**
+     * Copy the stored position into an existing board.
+     */
+    @Benchmark
+    public Board copy() {
+        _copy.copy(_board);
+        return _copy;
+    }
+
+    /**
+     * Copy the stored position into a new board.
+     */
+    @Benchmark
+    public Board copyConstructor() {
+        return new Board(_board);
+    }
+
+    /**
+     * Test the stored position for a winner.
+     */
+    @Benchmark
+    public Side getWinner() {
+        return _board.getWinner();
+    }
+
+    /**
+     * The stored position.
+     */
+    private Board _board;
+    /**
+     * The target of copy.
+     */
+    private Board _copy;
+    /**
+     * A 10x10 position one move from a board-wide cascade.
+     */
+    private Board _cascade;
+    /**
+     * The legal moves in _board, of which there are _numMoves.
+     */
+    private int[] _moves;
+    /**
+     * Number of valid entries in _moves.
+     */
+    private int _numMoves;
+    /**
+     * Index in _moves of the last move made by addSpot.
+     */
+    private int _next;
+
+}
@@ -0,0 +1,65 @@
+package jump61;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the AI's static evaluation of the stored positions (see
+ * Positions).
+ *
+ * @author Aniketh Prasad
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBench {
+
+    /**
+     * Name of the stored position evaluated.
+     */
+    @Param({ "6x6-12", "6x6-30", "8x8-40", "10x10-60" })
+    public String position;
+
+    /**
+     * Set up the position and player for a trial.
+     */
+    @Setup
+    public void setup() {
+        _board = Positions.position(position);
+        Game game = new Game((prompt) -> null, (board) -> { },
+                             new TextReporter(), false);
+        _ai = new AI(game, _board.whoseMove(), 0);
+    }
+
+    /**
+     * Evaluate the stored position.
+     */
+    @Benchmark
+    public int staticEval() {
+        return _ai.staticEval(_board, AI.WINNING_VALUE);
+    }
+
+    /**
+     * The stored position.
+     */
+    private Board _board;
+    /**
+     * The player evaluating.
+     */
+    private AI _ai;
+
+}
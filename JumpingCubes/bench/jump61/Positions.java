@@ -0,0 +1,137 @@
+package jump61;
+
+/**
+ * Stored positions used by the benchmarks, taken from games between
+ * automated players, and ways of building them.
+ *
+ * @author Aniketh Prasad
+ */
+class Positions {
+
+    /**
+     * Dumps of the stored positions (as for Board.toString), named by
+     * board size and number of moves played.
+     */
+    static final String[][] DUMPS = {
+        { "6x6-12",
+          "===\n"
+          + "    1b 3b 2b 3r 2r 1r\n"
+          + "    2b 2r 2r 2b 2b 2r\n"
+          + "    1- 1- 1- 1- 1- 1-\n"
+          + "    1- 1- 1- 1- 1- 1-\n"
+          + "    1- 1- 1- 1- 1- 1-\n"
+          + "    1- 1- 1- 1- 1- 1-\n"
+          + "===" },
+        { "6x6-30",
+          "===\n"
+          + "    1r 3b 1b 2b 2r 1r\n"
+          + "    3r 3r 2b 2b 1- 2r\n"
+          + "    1r 3r 1- 1- 1- 1-\n"
+          + "    2r 3r 2r 1- 1- 2r\n"
+          + "    3r 3b 2b 1- 2r 2r\n"
+          + "    1b 3b 2b 2b 1- 2r\n"
+          + "===" },
+        { "8x8-40",
+          "===\n"
+          + "    1b 2b 2r 3b 2r 2b 2r 1r\n"
+          + "    2b 2b 2b 2r 3r 2b 2b 2r\n"
+          + "    2r 2r 2r 2b 2r 2b 2r 2r\n"
+          + "    2b 2b 2b 2r 2r 2b 2b 2r\n"
+          + "    1- 1- 1- 1- 2b 1- 2r 1-\n"
+          + "    2b 1- 2r 1- 1- 1- 1- 2b\n"
+          + "    2r 1- 1- 2b 1- 1- 1- 1-\n"
+          + "    1- 2r 1- 1- 1- 1- 1- 1-\n"
+          + "===" },
+        { "10x10-60",
+          "===\n"
+          + "    1b 2b 2r 2b 2b 2r 2b 2b 2r 2r\n"
+          + "    2b 2r 2r 2r 2b 2b 2r 2r 3r 1r\n"
+          + "    2b 2r 2r 2b 2b 2r 2r 2b 3r 2r\n"
+          + "    2r 2b 2b 2b 2b 2r 2r 2b 2b 2r\n"
+          + "    2b 2b 2r 2r 2r 2r 2b 2b 1- 2b\n"
+          + "    2r 2b 2r 1- 1- 3r 1- 1- 1- 1-\n"
+          + "    1- 1- 1- 1- 1- 1- 1- 1- 1- 1-\n"
+          + "    1- 1- 1- 2b 1- 1- 1- 1- 1- 2b\n"
+          + "    1- 1- 1- 1- 1- 1- 3r 1- 1- 1-\n"
+          + "    1- 2b 1- 1- 1- 1- 1- 1- 2b 1-\n"
+          + "===" },
+    };
+
+    /**
+     * Return the names of the stored positions, in order.
+     */
+    static String[] names() {
+        String[] names = new String[DUMPS.length];
+        for (int i = 0; i < names.length; i += 1) {
+            names[i] = DUMPS[i][0];
+        }
+        return names;
+    }
+
+    /**
+     * Return a new Board holding the stored position named NAME.
+     */
+    static Board position(String name) {
+        for (String[] dump : DUMPS) {
+            if (dump[0].equals(name)) {
+                return parse(dump[1]);
+            }
+        }
+        throw new IllegalArgumentException("no stored position " + name);
+    }
+
+    /**
+     * Return a new Board holding the position dumped in DUMP.
+     */
+    static Board parse(String dump) {
+        String[] rows = dump.replace("===", "").trim().split("\\s*\\n\\s*");
+        int N = rows.length;
+        Board board = new Board(N);
+        for (int r = 1; r <= N; r += 1) {
+            String[] squares = rows[r - 1].split("\\s+");
+            for (int c = 1; c <= N; c += 1) {
+                String sq = squares[c - 1];
+                int spots = Integer.parseInt(sq.substring(0, sq.length() - 1));
+                switch (sq.charAt(sq.length() - 1)) {
+                case 'r':
+                    board.set(r, c, spots, Side.RED);
+                    break;
+                case 'b':
+                    board.set(r, c, spots, Side.BLUE);
+                    break;
+                default:
+                    board.set(r, c, 1, Side.WHITE);
+                    break;
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Return a new N x N board that is one move from the longest possible
+     * cascade: every square is critical and belongs to the player to
+     * move, except the square farthest from square #0, which holds one
+     * spot of the opponent's.  Adding a spot to square #0 then sets off
+     * a cascade that must sweep across the board to that square before
+     * the game is won.
+     */
+    static Board fullCascade(int N) {
+        Board board = new Board(N);
+        int last = N * N - 1;
+        for (int n = 0; n < last; n += 1) {
+            board.set(board.row(n), board.col(n), board.neighbors(n),
+                      Side.RED);
+        }
+        board.set(board.row(last), board.col(last), 1, Side.BLUE);
+        if (board.whoseMove() == Side.BLUE) {
+            for (int n = 0; n <= last; n += 1) {
+                Square sq = board.get(n);
+                board.set(board.row(n), board.col(n), sq.getSpots(),
+                          sq.getSide().opposite());
+            }
+        }
+        return board;
+    }
+
+}
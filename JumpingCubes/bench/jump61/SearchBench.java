@@ -0,0 +1,82 @@
+package jump61;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of fixed-depth AI searches from the stored positions (see
+ * Positions).  Each search starts with an empty transposition table, so
+ * that repeated invocations do the same work; clearing the table is not
+ * timed.
+ *
+ * @author Aniketh Prasad
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBench {
+
+    /**
+     * Name of the stored position searched.
+     */
+    @Param({ "6x6-12", "6x6-30", "8x8-40", "10x10-60" })
+    public String position;
+
+    /**
+     * Depth of the searches.
+     */
+    @Param({ "2", "4" })
+    public int depth;
+
+    /**
+     * Set up the position and player for a trial.
+     */
+    @Setup
+    public void setup() {
+        _board = Positions.position(position);
+        Game game = new Game((prompt) -> null, (board) -> { },
+                             new TextReporter(), false);
+        _ai = new AI(game, _board.whoseMove(), 0);
+    }
+
+    /**
+     * Empty the transposition table before each search.
+     */
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        _ai.clearTable();
+    }
+
+    /**
+     * Search the stored position to the given depth.
+     */
+    @Benchmark
+    public int search() {
+        return _ai.searchToDepth(_board, depth);
+    }
+
+    /**
+     * The stored position.
+     */
+    private Board _board;
+    /**
+     * The player searching.
+     */
+    private AI _ai;
+
+}
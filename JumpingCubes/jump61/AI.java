@@ -1,10 +1,15 @@
 package jump61;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static jump61.Side.BLUE;
 import static jump61.Side.RED;
+import static jump61.Utils.debug;
 
 /**
  * An automated Player.
@@ -13,6 +18,21 @@ import static jump61.Side.RED;
  */
 class AI extends Player {
 
+    /**
+     * Number of positions searched between checks of the clock.
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+    /**
+     * Time limit for pondering, in milliseconds: in effect, none, since
+     * pondering continues until stopped.
+     */
+    private static final long PONDER_TIME_LIMIT = Long.MAX_VALUE / 4;
+    /**
+     * The value of a position won by Red (and the negative of the value
+     * of one won by Blue).  It exceeds the magnitude of any heuristic
+     * value (see EvalWeights.MAX_WEIGHT).
+     */
+    static final int WINNING_VALUE = 1 << 28;
     /**
      * A random-number generator used for move selection.
      */
@@ -21,46 +41,671 @@ class AI extends Player {
      * Used to convey moves discovered by minMax.
      */
     private int _foundMove;
-
+    /**
+     * The board on which minMax searches.  Moves are made and taken back
+     * in place, so one board serves for the whole search.
+     */
+    private final Board _work = new Board(Defaults.BOARD_SIZE);
+    /**
+     * Buffers for the legal moves at each level of the search, indexed
+     * by remaining depth.  Allocated here to cut down on allocations.
+     */
+    private int[][] _moveLists = new int[0][];
+    /**
+     * Arrays of cascading moves (see cascadeList), indexed by the number
+     * of moves left to a quiescence search.
+     */
+    private int[][] _cascadeLists = new int[0][];
+    /**
+     * Results of searching positions, kept from one move to the next.
+     */
+    private final TranspositionTable _table;
+    /**
+     * Orders the moves searched by minMax.
+     */
+    private final MoveOrderer _orderer = new MoveOrderer();
+    /**
+     * The depth of the current search iteration.
+     */
+    private int _rootDepth;
+    /**
+     * Approximate limit on the time spent choosing one move, in
+     * milliseconds.
+     */
+    private long _timeLimit = Defaults.TIME_LIMIT;
+    /**
+     * Limit on the number of positions searched in choosing one move, or
+     * 0 for no limit.
+     */
+    private long _nodeLimit = Defaults.NODE_LIMIT;
+    /**
+     * Number of positions searched so far for the current move.
+     */
+    private long _nodes;
+    /**
+     * Time (as for System.currentTimeMillis) by which the current search
+     * must stop.
+     */
+    private long _deadline;
+    /**
+     * True once a search iteration has completed for the current move,
+     * so that further iterations may be abandoned.
+     */
+    private boolean _mayAbort;
+    /**
+     * True iff the current search iteration has run out of time or
+     * positions, and is being abandoned.
+     */
+    private boolean _aborted;
+    /**
+     * True iff I am a helper searching on behalf of another AI (see
+     * _helpers).
+     */
+    private final boolean _isHelper;
+    /**
+     * Set to tell a helper to stop searching.
+     */
+    private volatile boolean _halt;
+    /**
+     * The best move found by the last completed iteration of the current
+     * search, or -1 if none.
+     */
+    private int _bestMove;
+    /**
+     * The value (for Red) found by the last completed iteration of the
+     * current search.
+     */
+    private int _bestValue;
+    /**
+     * The depth of the last completed iteration of the current search.
+     */
+    private int _completedDepth;
+    /**
+     * The value, for the player to move, and the depth of the search
+     * that chose the last move returned by searchForMove.
+     */
+    private int _searchValue, _searchDepth;
+    /**
+     * The number of threads searching for each move.
+     */
+    private int _threads = 1;
+    /**
+     * When _threads > 1, the AIs that search alongside me in the other
+     * threads, sharing my transposition table (lazy SMP).
+     */
+    private AI[] _helpers = new AI[0];
+    /**
+     * Runs the searches of _helpers, if any.
+     */
+    private ExecutorService _pool;
+    /**
+     * Statistics about the choice of my last move (for a helper, about
+     * my part of the last search).
+     */
+    private final SearchStats _stats = new SearchStats();
+    /**
+     * Weights of the terms of my static evaluation.
+     */
+    private EvalWeights _weights;
+    /**
+     * Largest number of cascading moves made by a quiescence search.
+     */
+    private int _quiescenceDepth = Defaults.QUIESCENCE_DEPTH;
+    /**
+     * Runs my pondering (see moveMade), or null if I have not pondered.
+     */
+    private ExecutorService _ponderer;
+    /**
+     * Searches when I ponder, sharing my transposition table but not my
+     * other search state, or null if I have not pondered.
+     */
+    private AI _ponderSearcher;
+    /**
+     * My pondering in progress, or null.
+     */
+    private Future<?> _pondering;
+    /**
+     * The position I last pondered: the one expected after my opponent's
+     * reply to my last move, if I predicted the reply, and otherwise the
+     * one in which my opponent is to move.
+     */
+    private final Board _ponderBoard = new Board(Defaults.BOARD_SIZE);
+    /**
+     * True iff I predicted my opponent's reply when I last pondered, and
+     * have not yet used the result.
+     */
+    private boolean _ponderPredicted;
+    /**
+     * The move found by my last pondering (-1 if none), and the depth of
+     * its search.
+     */
+    private int _ponderMove, _ponderDepth;
+    /**
+     * The time taken by my last pondering, in milliseconds.
+     */
+    private long _ponderTime;
 
     /**
      * A new player of GAME initially COLOR that chooses moves automatically.
      * SEED provides a random-number seed used for choosing moves.
      */
     AI(Game game, Side color, long seed) {
+        this(game, color, seed,
+             new TranspositionTable(Defaults.TABLE_SIZE_LOG2));
+    }
+
+    /**
+     * A new player as for AI(GAME, COLOR, SEED) that uses TABLE as its
+     * transposition table, keeping any entries already in it.  Lets a
+     * series of short-lived players reuse one table.
+     */
+    AI(Game game, Side color, long seed, TranspositionTable table) {
         super(game, color);
         _random = new Random(seed);
+        _table = table;
+        _isHelper = false;
+        _weights = game.weights();
+    }
+
+    /**
+     * A helper for MAIN, which searches in a separate thread using MAIN's
+     * transposition table.  SEED is as for the public constructor.
+     */
+    private AI(AI main, long seed) {
+        this(main, seed, true);
+    }
+
+    /**
+     * A searcher for MAIN that shares MAIN's transposition table but has
+     * its own board, statistics, limits, and helpers: a helper (see
+     * _helpers) if ISHELPER, and otherwise a ponderer (see
+     * startPondering).  SEED is as for the public constructor.
+     */
+    private AI(AI main, long seed, boolean isHelper) {
+        super(main.getGame(), main.getSide());
+        _random = new Random(seed);
+        _table = main._table;
+        _isHelper = isHelper;
+        _weights = main._weights;
+        _quiescenceDepth = main._quiescenceDepth;
     }
 
     @Override
     String getMove() {
+        Board board = getGame().getBoard();
+        int choice = chooseMove();
+        getGame().reportMove(board.row(choice), board.col(choice));
+        return String.format("%d %d", board.row(choice), board.col(choice));
+    }
 
+    @Override
+    int chooseMove() {
         Board board = getGame().getBoard();
 
         assert getSide() == board.whoseMove();
-        int choice = searchForMove();
-        getGame().reportMove(board.row(choice), board.col(choice));
-        return String.format("%d %d", board.row(choice), board.col(choice));
+        stopPondering();
+        setLimits(getGame().timeLimit(), getGame().nodeLimit());
+        setThreads(getGame().threads());
+        setWeights(getGame().weights());
+        long start = System.nanoTime();
+        int choice = -1;
+        _stats.clear("tablebase");
+        Tablebase tablebase = getGame().tablebase(board.size());
+        if (tablebase != null) {
+            _work.copy(board);
+            choice = tablebaseMove(tablebase, _work);
+        }
+        OpeningBook book = getGame().openingBook(board.size());
+        if (choice < 0 && book != null) {
+            _stats.setSource("book");
+            choice = book.move(board);
+        }
+        PositionDatabase database = getGame().positionDatabase();
+        if (choice < 0 && database != null) {
+            _stats.setSource("database");
+            choice = databaseMove(database, board);
+        }
+        if (choice < 0) {
+            long pondered = ponderedTime(board);
+            _ponderPredicted = false;
+            if (pondered >= _timeLimit) {
+                _stats.setSource("ponder");
+                _stats.add(_ponderSearcher._stats);
+                _stats.setDepth(_ponderDepth);
+                choice = _ponderMove;
+            } else {
+                setLimits(_timeLimit - pondered, _nodeLimit);
+                choice = searchForMove(board);
+            }
+        }
+        _stats.finish(getSide(), choice, System.nanoTime() - start);
+        debug(getGame().statsLevel(), "%s", _stats);
+        return choice;
+    }
+
+    /**
+     * Return statistics about the choice of my last move (see
+     * SearchStats), which are also printed as a debugging message at
+     * the level given by my game's statsLevel.  The result is overwritten
+     * by my next move.
+     */
+    SearchStats lastStats() {
+        return _stats;
+    }
+
+    /**
+     * Limit subsequent searches to about TIMELIMIT milliseconds and to
+     * NODELIMIT positions (no limit if 0) per move.
+     */
+    void setLimits(long timeLimit, long nodeLimit) {
+        _timeLimit = timeLimit;
+        _nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Evaluate positions using the term weights WEIGHTS.
+     */
+    void setWeights(EvalWeights weights) {
+        _weights = weights;
+        for (AI helper : _helpers) {
+            helper._weights = weights;
+        }
+    }
+
+    /**
+     * Limit quiescence searches (see quiesce) to DEPTH cascading moves,
+     * so that none are made if DEPTH is 0.
+     */
+    void setQuiescenceDepth(int depth) {
+        _quiescenceDepth = depth;
+        for (AI helper : _helpers) {
+            helper._quiescenceDepth = depth;
+        }
+    }
+
+    @Override
+    boolean isAutomated() {
+        return true;
+    }
+
+    @Override
+    void retire() {
+        stopPondering();
+        if (_ponderer != null) {
+            _ponderer.shutdownNow();
+            _ponderer = null;
+        }
+        if (_ponderSearcher != null) {
+            _ponderSearcher.setThreads(1);
+        }
+        setThreads(1);
+    }
+
+    /**
+     * When pondering is on (see Game.ponder), start pondering after
+     * each of my moves: searching, in the background and until the next
+     * move is made, the position expected after my opponent's reply (as
+     * predicted by my transposition table), or if I cannot predict it,
+     * the position my opponent faces.  Either way, the search fills my
+     * transposition table for my next move; if the prediction is right,
+     * the time spent pondering counts towards that move's time limit.
+     */
+    @Override
+    void moveMade(Side player, int n) {
+        stopPondering();
+        Board board = getBoard();
+        if (player == getSide() && getGame().ponder()
+            && board.getWinner() == null) {
+            startPondering(board);
+        }
+    }
+
+    /**
+     * Start pondering (see moveMade) after my move to the position on
+     * BOARD.
+     */
+    private void startPondering(Board board) {
+        _ponderBoard.copy(board);
+        int reply = predictReply(_ponderBoard);
+        _ponderPredicted = reply >= 0;
+        if (_ponderPredicted) {
+            _ponderBoard.addSpot(_ponderBoard.whoseMove(), reply);
+            if (_ponderBoard.getWinner() != null) {
+                _ponderPredicted = false;
+                return;
+            }
+        }
+        if (_ponderer == null) {
+            _ponderer = Executors.newSingleThreadExecutor((r) -> {
+                Thread thread = new Thread(r, "jump61-ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (_ponderSearcher == null) {
+            _ponderSearcher = new AI(this, _random.nextLong(), false);
+        }
+        AI searcher = _ponderSearcher;
+        searcher.setLimits(PONDER_TIME_LIMIT, 0);
+        searcher.setThreads(_threads);
+        searcher.setWeights(_weights);
+        searcher.setQuiescenceDepth(_quiescenceDepth);
+        _ponderMove = -1;
+        _pondering = _ponderer.submit(() -> {
+            long start = System.currentTimeMillis();
+            int move = searcher.searchForMove(_ponderBoard);
+            _ponderDepth = searcher.searchDepth();
+            _ponderTime = System.currentTimeMillis() - start;
+            _ponderMove = move;
+        });
+    }
+
+    /**
+     * Stop my pondering, if any, and wait until its search has finished.
+     */
+    private void stopPondering() {
+        if (_pondering == null) {
+            return;
+        }
+        _pondering.cancel(true);
+        _pondering = null;
+        await(_ponderer.submit(() -> { }));
+    }
+
+    /**
+     * Wait until TASK has finished, even if my thread is interrupted
+     * meanwhile (in which case its interrupt status is set again before
+     * returning).  Returns the exception TASK threw, or null if it threw
+     * none.
+     */
+    private static Throwable await(Future<?> task) {
+        boolean interrupted = false;
+        Throwable result = null;
+        while (true) {
+            try {
+                task.get();
+                break;
+            } catch (InterruptedException excp) {
+                interrupted = true;
+            } catch (ExecutionException excp) {
+                result = excp.getCause();
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    /**
+     * Return the reply to the position on BOARD that my transposition
+     * table gives as best, or -1 if it gives none.
+     */
+    private int predictReply(Board board) {
+        long entry = _table.probe(board.canonicalHash());
+        int move = entry == 0 ? -1 : TranspositionTable.move(entry);
+        if (move < 0) {
+            return -1;
+        }
+        int undo = Board.INVERSE_SYMMETRY[board.canonicalSymmetry()];
+        move = Board.symmetries(board.size())[undo][move];
+        return board.isLegal(board.whoseMove(), move) ? move : -1;
+    }
+
+    /**
+     * Return the time in milliseconds that my last pondering spent on
+     * the position on BOARD, if it predicted that position and found a
+     * move, and otherwise 0.
+     */
+    private long ponderedTime(Board board) {
+        if (_ponderPredicted && _ponderMove >= 0
+            && _ponderBoard.equals(board)) {
+            return _ponderTime;
+        }
+        return 0;
+    }
+
+    /**
+     * Search for each move using THREADS threads.  With more than one,
+     * the extra threads run helper searches that share my
+     * transposition table; the move chosen is the one from the deepest
+     * search completed by any thread.
+     */
+    void setThreads(int threads) {
+        if (threads == _threads) {
+            return;
+        }
+        if (_pool != null) {
+            _pool.shutdownNow();
+            _pool = null;
+        }
+        _threads = threads;
+        _helpers = new AI[threads - 1];
+        for (int i = 0; i < _helpers.length; i += 1) {
+            _helpers[i] = new AI(this, _random.nextLong());
+        }
+        if (threads > 1) {
+            _pool = Executors.newFixedThreadPool(threads - 1, (r) -> {
+                Thread thread = new Thread(r, "jump61-search");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Return the best move on BOARD according to TABLEBASE: the quickest
+     * win if there is one, and otherwise the slowest loss.  Returns -1
+     * if TABLEBASE does not know the value of every move.  BOARD is
+     * restored before returning.
+     */
+    int tablebaseMove(Tablebase tablebase, Board board) {
+        int best = -1, bestValue = Integer.MIN_VALUE;
+        int[] moves = moveList(board, 0);
+        int numMoves = legalMoves(board, moves);
+        for (int i = 0; i < numMoves; i += 1) {
+            int token = board.makeMove(board.whoseMove(), moves[i]);
+            boolean won = board.getWinner() != null;
+            int value = won ? 0 : tablebase.probe(board);
+            board.unmakeMove(token);
+            if (won) {
+                return moves[i];
+            } else if (value == 0) {
+                return -1;
+            }
+            int score = value < 0 ? Integer.MAX_VALUE + value : value;
+            if (score > bestValue) {
+                best = moves[i];
+                bestValue = score;
+            }
+        }
+        return best;
     }
 
     /**
-     * Return a move after searching the game tree to DEPTH>0 moves
-     * from the current position. Assumes the game is not over.
+     * Return the move on BOARD that has done best for the player to move
+     * in the games recorded in DATABASE, among those played at least
+     * Defaults.BOOK_MIN_VISITS times, or -1 if there is none.
      */
-    private int searchForMove() {
-        Board work = new Board(getBoard());
-        int value;
-        assert getSide() == work.whoseMove();
+    int databaseMove(PositionDatabase database, Board board) {
+        PositionDatabase.Stats stats = database.lookup(board);
+        if (stats == null) {
+            return -1;
+        }
+        Side player = board.whoseMove();
+        int best = -1;
+        double bestScore = -1.0;
+        for (int k = 0; k < stats.numMoves(); k += 1) {
+            int move = stats.move(k), visits = stats.visits(k);
+            if (visits >= Defaults.BOOK_MIN_VISITS
+                && move < board.size() * board.size()
+                && board.isLegal(player, move)) {
+                double score = (double) stats.wins(k, player) / visits;
+                if (score > bestScore) {
+                    best = move;
+                    bestScore = score;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return a move for the player to move in POSITION after searching
+     * the game tree from it by iterative deepening (see deepen), in as
+     * many threads as set by setThreads and within the limits set by
+     * setLimits.  The value and depth of the search are then available
+     * from searchValue and searchDepth.  Assumes the game is not over.
+     */
+    int searchForMove(Board position) {
+        _work.copy(position);
+        long start = System.currentTimeMillis();
+        _table.newSearch();
+        _stats.clear("search");
+
+        Future<?>[] helping = new Future<?>[_helpers.length];
+        for (int i = 0; i < _helpers.length; i += 1) {
+            AI helper = _helpers[i];
+            helper._work.copy(_work);
+            helper.setLimits(_timeLimit, _nodeLimit);
+            helper._halt = false;
+            helper._stats.clear("search");
+            int firstDepth = 1 + (i + 1) % 2;
+            helping[i] = _pool.submit(() -> helper.deepen(start, firstDepth));
+        }
+        deepen(start, 1);
+        int bestMove = _bestMove, bestDepth = _completedDepth,
+            bestValue = _bestValue;
+        for (AI helper : _helpers) {
+            helper._halt = true;
+        }
+        Throwable failure = null;
+        for (Future<?> help : helping) {
+            Throwable excp = await(help);
+            if (failure == null) {
+                failure = excp;
+            }
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException("helper search failed", failure);
+        }
+        for (AI helper : _helpers) {
+            _stats.add(helper._stats);
+            if (helper._completedDepth > bestDepth) {
+                bestMove = helper._bestMove;
+                bestDepth = helper._completedDepth;
+                bestValue = helper._bestValue;
+            }
+        }
+        _searchValue = _work.whoseMove() == RED ? bestValue : -bestValue;
+        _searchDepth = bestDepth;
+        _stats.setDepth(bestDepth);
+        return bestMove;
+    }
+
+    /**
+     * Return the value, for the player to move, of the position last
+     * searched by searchForMove, as found by its deepest completed
+     * iteration.
+     */
+    int searchValue() {
+        return _searchValue;
+    }
+
+    /**
+     * Return the depth of the deepest completed iteration of the last
+     * search by searchForMove.
+     */
+    int searchDepth() {
+        return _searchDepth;
+    }
+
+    /**
+     * Search the position on _work by iterative deepening: searching to
+     * depth FIRSTDEPTH, FIRSTDEPTH + 1, ... until the position is
+     * decided, the time or position limit for a search begun at START
+     * is reached, there is not time enough left for another iteration,
+     * or (for helpers) I am told to halt.  Sets _bestMove, _bestValue,
+     * and _completedDepth from the last completed iteration.  My first
+     * iteration always completes unless I am a helper.
+     */
+    private void deepen(long start, int firstDepth) {
+        Board work = _work;
+        int sense = work.whoseMove() == RED ? 1 : -1;
+        _deadline = start + _timeLimit;
+        _nodes = 0;
+        _mayAbort = _isHelper;
+        _aborted = false;
+        _orderer.newSearch();
+        _bestMove = -1;
+        _completedDepth = 0;
+
+        for (int depth = firstDepth; depth <= Defaults.MAX_SEARCH_DEPTH;
+             depth += 1) {
+            _foundMove = -1;
+            _rootDepth = depth;
+            int value = minMax(work, depth, true, sense,
+                               Integer.MIN_VALUE, Integer.MAX_VALUE);
+            if (_aborted) {
+                break;
+            }
+            _bestMove = _foundMove;
+            _bestValue = value;
+            _completedDepth = depth;
+            _mayAbort = true;
+            long elapsed = System.currentTimeMillis() - start;
+            if (Math.abs(value) == WINNING_VALUE
+                || 2 * elapsed > _timeLimit) {
+                break;
+            }
+        }
+        _stats.addNodes(_nodes);
+    }
+
+    /**
+     * Return the value of BOARD found by a single search to DEPTH,
+     * with no limit on time or positions searched.  For benchmarks.
+     */
+    int searchToDepth(Board board, int depth) {
+        _work.copy(board);
+        _table.newSearch();
+        _orderer.newSearch();
+        _nodes = 0;
+        _mayAbort = false;
+        _aborted = false;
         _foundMove = -1;
+        _rootDepth = depth;
+        return minMax(_work, depth, true,
+                      _work.whoseMove() == RED ? 1 : -1,
+                      Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
 
-        if (getSide() == RED) {
-            minMax(work, 2, true, -1,
-                    Integer.MIN_VALUE, Integer.MAX_VALUE);
-        } else {
-            minMax(work, 1, true, -1,
-                    Integer.MIN_VALUE, Integer.MAX_VALUE);
+    /**
+     * Remove all entries from my transposition table.
+     */
+    void clearTable() {
+        _table.clear();
+    }
+
+    /**
+     * Count one more position searched, and return true iff the current
+     * search iteration must be abandoned for lack of time or positions,
+     * or because my thread has been interrupted.
+     */
+    private boolean outOfTime() {
+        _nodes += 1;
+        if (_mayAbort && !_aborted) {
+            _aborted = (_nodeLimit > 0 && _nodes > _nodeLimit)
+                || (_nodes % CLOCK_CHECK_INTERVAL == 0
+                    && (_halt || System.currentTimeMillis() > _deadline
+                        || Thread.currentThread().isInterrupted()));
         }
-        return _foundMove;
+        return _aborted;
     }
 
     /**
@@ -68,81 +713,274 @@ class AI extends Player {
      * the move found in _foundMove iff SAVEMOVE. The move
      * should have maximal value or have value > BETA if SENSE==1,
      * and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     * DEPTH levels.  Searching at level 0 simply returns a static estimate
-     * of the board value and does not set _foundMove. If the game is over
-     * on BOARD, does not set _foundMove.
+     * DEPTH levels.  Searching at level 0 returns the value found by a
+     * quiescence search (see quiesce) and does not set _foundMove. If
+     * the game is over on BOARD, does not set _foundMove.  Once the
+     * search runs out of time (see outOfTime), returns a meaningless
+     * value.
      */
     private int minMax(Board board, int depth, boolean saveMove,
                        int sense, int alpha, int beta) {
         int currBest = -1;
-        if (depth == 0 || board.getWinner() != null) {
-            return staticEval(board, board.size() * board.size() + 1);
+        if (outOfTime()) {
+            return 0;
         }
-        ArrayList<Integer> allMoves = new ArrayList<>();
-        for (int i = 0; i < board.size() * board.size(); i++) {
-            if (board.isLegal(board.whoseMove(), i)) {
-                allMoves.add(i);
+        if (board.getWinner() != null) {
+            return staticEval(board, WINNING_VALUE);
+        }
+        if (depth == 0) {
+            return quiesce(board, _quiescenceDepth, sense, alpha, beta);
+        }
+        long key = board.canonicalHash();
+        int[][] symmetries = Board.symmetries(board.size());
+        int symmetry = board.canonicalSymmetry();
+        long entry = _table.probe(key);
+        _stats.probe(entry != 0);
+        if (entry != 0 && !saveMove
+            && TranspositionTable.depth(entry) >= depth) {
+            int value = TranspositionTable.value(entry);
+            switch (TranspositionTable.bound(entry)) {
+            case TranspositionTable.EXACT:
+                return value;
+            case TranspositionTable.LOWER:
+                alpha = Math.max(alpha, value);
+                break;
+            default:
+                beta = Math.min(beta, value);
+                break;
+            }
+            if (beta <= alpha) {
+                return value;
             }
         }
-        if (sense == 1) {
-            int maximum = Integer.MIN_VALUE;
-            for (int m : allMoves) {
-                Board g = new Board(board);
-                g.addSpot(g.whoseMove(), m);
-                int eval = minMax(g, depth - 1, false, -1 * sense, alpha, beta);
-                maximum = Math.max(maximum, eval);
-                alpha = Math.max(alpha, eval);
-                if (beta <= alpha) {
-                    break;
-                }
-                if (maximum == eval) {
-                    currBest = m;
-                }
+        int alpha0 = alpha, beta0 = beta;
+        int[] allMoves = moveList(board, depth);
+        int numMoves = legalMoves(board, allMoves);
+        int ply = _rootDepth - depth;
+        int tableMove = entry == 0 ? -1 : TranspositionTable.move(entry);
+        if (tableMove >= 0) {
+            tableMove =
+                symmetries[Board.INVERSE_SYMMETRY[symmetry]][tableMove];
+        }
+        _orderer.order(board, allMoves, numMoves, tableMove, ply);
+        int best = sense == 1 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int i = 0; i < numMoves; i += 1) {
+            int m = allMoves[i];
+            int token = board.makeMove(board.whoseMove(), m);
+            int eval = minMax(board, depth - 1, false, -1 * sense,
+                              alpha, beta);
+            board.unmakeMove(token);
+            if (_aborted) {
+                return 0;
+            }
+            if (sense == 1 ? eval > best : eval < best) {
+                best = eval;
+                currBest = m;
             }
-            if (!saveMove) {
-                return maximum;
+            if (sense == 1) {
+                alpha = Math.max(alpha, eval);
             } else {
-                _foundMove = currBest;
-                return _foundMove;
+                beta = Math.min(beta, eval);
             }
+            if (beta <= alpha) {
+                _stats.cutoff();
+                _orderer.cutoff(board.whoseMove(), m, depth, ply);
+                break;
+            }
+        }
+        int bound;
+        if (best <= alpha0) {
+            bound = TranspositionTable.UPPER;
+        } else if (best >= beta0) {
+            bound = TranspositionTable.LOWER;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+        _table.store(key, depth, bound, best,
+                     currBest < 0 ? -1 : symmetries[symmetry][currBest]);
+        if (saveMove) {
+            _foundMove = currBest;
+        }
+        return best;
+    }
+
+    /**
+     * Return a buffer large enough to hold all moves on BOARD, for use
+     * by minMax at remaining depth DEPTH.  Buffers are reused from one
+     * search to the next.
+     */
+    private int[] moveList(Board board, int depth) {
+        int numSquares = board.size() * board.size();
+        if (depth >= _moveLists.length) {
+            _moveLists = Arrays.copyOf(_moveLists, depth + 1);
+        }
+        if (_moveLists[depth] == null
+            || _moveLists[depth].length < numSquares) {
+            _moveLists[depth] = new int[numSquares];
+        }
+        return _moveLists[depth];
+    }
+
+    /**
+     * Store the legal moves for the player to move on BOARD in MOVES, in
+     * increasing order of square number, and return their number.  When
+     * the position is symmetric, only the first of each set of moves
+     * that the position's symmetries carry into each other is stored,
+     * since the rest lead to equivalent positions.
+     */
+    private int legalMoves(Board board, int[] moves) {
+        Side player = board.whoseMove();
+        int selfSymmetries = board.selfSymmetries();
+        int[][] symmetries = Board.symmetries(board.size());
+        int k;
+        k = 0;
+        for (int i = 0; i < board.size() * board.size(); i++) {
+            if (board.isLegal(player, i)
+                && firstOfOrbit(i, selfSymmetries, symmetries)) {
+                moves[k] = i;
+                k += 1;
+            }
+        }
+        return k;
+    }
 
+    /**
+     * Return the value of BOARD found by a quiescence search: one that
+     * follows only cascading moves (see cascadeMoves) until the position
+     * is quiet or QDEPTH more such moves have been made.  At each
+     * position, the player to move may instead "stand pat", accepting
+     * the static value of the position, so that the search never forces
+     * a cascade that does more harm than good.  SENSE, ALPHA, and BETA
+     * are as for minMax.  Positions searched here are not stored in the
+     * transposition table.  Once the search runs out of time, returns a
+     * meaningless value.
+     */
+    private int quiesce(Board board, int qdepth, int sense,
+                        int alpha, int beta) {
+        int best = staticEval(board, WINNING_VALUE);
+        if (qdepth == 0 || board.getWinner() != null) {
+            return best;
+        }
+        if (sense == 1) {
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
         } else {
-            int minimum = Integer.MAX_VALUE;
-            for (int m : allMoves) {
-                Board g = new Board(board);
-                g.addSpot(g.whoseMove(), m);
-                int eval = minMax(g, depth - 1, false, -1 * sense, alpha, beta);
-                minimum = Math.min(minimum, eval);
-                beta = Math.min(beta, eval);
-                if (beta <= alpha) {
-                    break;
-                }
-                if (minimum == eval) {
-                    currBest = m;
-                }
+            if (best <= alpha) {
+                return best;
+            }
+            beta = Math.min(beta, best);
+        }
+        int[] moves = cascadeList(board, qdepth);
+        int numMoves = cascadeMoves(board, moves);
+        for (int i = 0; i < numMoves; i += 1) {
+            if (outOfTime()) {
+                return 0;
+            }
+            int token = board.makeMove(board.whoseMove(), moves[i]);
+            int eval = quiesce(board, qdepth - 1, -sense, alpha, beta);
+            board.unmakeMove(token);
+            if (_aborted) {
+                return 0;
             }
-            if (!saveMove) {
-                return minimum;
+            if (sense == 1) {
+                best = Math.max(best, eval);
+                alpha = Math.max(alpha, eval);
             } else {
-                _foundMove = currBest;
-                return _foundMove;
+                best = Math.min(best, eval);
+                beta = Math.min(beta, eval);
+            }
+            if (beta <= alpha) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fill MOVES with the cascading moves on BOARD for the player to
+     * move, and return how many there are.  These are the player's
+     * critical squares (see Board.critical), on which one more spot
+     * sets off a cascade, that are adjacent to an opponent's square or
+     * to another of the player's critical squares (through which the
+     * cascade may spread).  Those next to an opponent's square come
+     * first.
+     */
+    private static int cascadeMoves(Board board, int[] moves) {
+        Side player = board.whoseMove(), opponent = player.opposite();
+        int[][] adjacent = Board.adjacencies(board.size());
+        int first = 0, last = moves.length;
+        for (int n = 0; n < adjacent.length; n += 1) {
+            if (board.get(n).getSide() != player || !board.critical(n)) {
+                continue;
+            }
+            boolean attacks = false, spreads = false;
+            for (int m : adjacent[n]) {
+                Side owner = board.get(m).getSide();
+                attacks |= owner == opponent;
+                spreads |= owner == player && board.critical(m);
+            }
+            if (attacks) {
+                moves[first] = n;
+                first += 1;
+            } else if (spreads) {
+                last -= 1;
+                moves[last] = n;
+            }
+        }
+        int numMoves = first;
+        for (int i = moves.length - 1; i >= last; i -= 1) {
+            moves[numMoves] = moves[i];
+            numMoves += 1;
+        }
+        return numMoves;
+    }
+
+    /**
+     * Return an array big enough to hold the cascading moves on BOARD,
+     * reserved for use by quiescence searches with QDEPTH moves left.
+     */
+    private int[] cascadeList(Board board, int qdepth) {
+        int numSquares = board.size() * board.size();
+        if (qdepth >= _cascadeLists.length) {
+            _cascadeLists = Arrays.copyOf(_cascadeLists, qdepth + 1);
+        }
+        if (_cascadeLists[qdepth] == null
+            || _cascadeLists[qdepth].length != numSquares) {
+            _cascadeLists[qdepth] = new int[numSquares];
+        }
+        return _cascadeLists[qdepth];
+    }
+
+    /**
+     * Return true iff no symmetry whose bit is set in MASK (see
+     * Board.selfSymmetries) carries square #N to a square with a lower
+     * number, where SYMMETRIES is the board's symmetry table.
+     */
+    private static boolean firstOfOrbit(int n, int mask, int[][] symmetries) {
+        for (int k = 1; mask >>> k != 0; k += 1) {
+            if ((mask & 1 << k) != 0 && symmetries[k][n] < n) {
+                return false;
             }
         }
+        return true;
     }
 
     /**
-     * Return a heuristic estimate of the value of board position B.
-     * Use WINNINGVALUE to indicate a win for Red and -WINNINGVALUE to
-     * indicate a win for Blue.
+     * Return a heuristic estimate of the value of board position B, as
+     * weighted by my EvalWeights.  Use WINNINGVALUE to indicate a win
+     * for Red and -WINNINGVALUE to indicate a win for Blue.  Takes
+     * constant time.
      */
-    private int staticEval(Board b, int winningValue) {
-        int blueCount = b.numOfSide(BLUE), redCount = b.numOfSide(RED);
-        if (b.getWinner() == BLUE) {
+    int staticEval(Board b, int winningValue) {
+        Side winner = b.getWinner();
+        if (winner == BLUE) {
             return -winningValue;
         }
-        if (b.getWinner() == RED) {
+        if (winner == RED) {
             return winningValue;
         }
-        return blueCount - redCount;
+        return _weights.evaluate(b);
     }
 }
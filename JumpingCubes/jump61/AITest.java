@@ -0,0 +1,47 @@
+package jump61;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of the AI's search.
+ *
+ * @author Aniketh Prasad
+ */
+public class AITest {
+
+    /**
+     * Return a new AI playing COLOR in a game with default settings.
+     */
+    private static AI newAI(Side color) {
+        Game game = new Game((prompt) -> null, (board) -> { },
+                             new TextReporter(), false);
+        return new AI(game, color, 0);
+    }
+
+    @Test
+    public void testQuiescence() {
+        Board B = new Board(3);
+        B.set(1, 1, 2, Side.RED);
+        B.set(2, 2, 2, Side.RED);
+        B.set(1, 2, 1, Side.BLUE);
+        B.set(3, 3, 1, Side.BLUE);
+        assertEquals(Side.RED, B.whoseMove());
+        assertTrue(B.critical(B.sqNum(1, 1)));
+
+        Board after = new Board(B);
+        after.addSpot(Side.RED, 1, 1);
+        assertEquals(Side.RED, after.get(1, 2).getSide());
+        assertEquals(Side.RED, after.get(2, 1).getSide());
+        EvalWeights weights = new EvalWeights();
+        int before = weights.evaluate(B), cascaded = weights.evaluate(after);
+        assertTrue(cascaded > before);
+
+        AI ai = newAI(Side.RED);
+        assertEquals(cascaded, ai.searchToDepth(B, 0));
+        ai.setQuiescenceDepth(0);
+        assertEquals(before, ai.searchToDepth(B, 0));
+    }
+
+}
@@ -1,8 +1,8 @@
 package jump61;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Formatter;
+import java.util.Random;
 import java.util.function.Consumer;
 
 import static jump61.Side.*;
@@ -26,18 +26,160 @@ class Board {
     private static final Consumer<Board> NOP = (s) -> {
     };
     /**
-     * Used in jump to keep track of squares needing processing.  Allocated
-     * here to cut down on allocations.
+     * All Sides, indexed by ordinal (avoids the copy made by
+     * Side.values()).
      */
-    private final ArrayDeque<Integer> _workQueue = new ArrayDeque<>();
+    private static final Side[] SIDES = Side.values();
     /**
-     * Keeps track of visited nodes.
+     * Number of low-order bits of a packed square holding its Side's
+     * ordinal.  The remaining bits hold its number of spots.
      */
-    private final ArrayList<Integer> _visited = new ArrayList<>();
+    private static final int SIDE_BITS = 2;
     /**
-     * stores undo history.
+     * Mask extracting the Side ordinal from a packed square.
      */
-    private ArrayList<Square[][]> history = new ArrayList<>();
+    private static final int SIDE_MASK = (1 << SIDE_BITS) - 1;
+    /**
+     * The ordinal of WHITE, as held in a packed square.
+     */
+    private static final int WHITE_ORDINAL = WHITE.ordinal();
+    /**
+     * The packed form of Square.INITIAL: white, with one spot.
+     */
+    private static final byte INITIAL = pack(WHITE, 1);
+    /**
+     * Position of the square number within an undo-journal entry.
+     */
+    private static final int JOURNAL_SQUARE_SHIFT = 2 * Byte.SIZE;
+    /**
+     * Mask for the low-order byte of an int.
+     */
+    private static final int BYTE_MASK = 0xff;
+    /**
+     * Seed for the pseudo-random keys in ZOBRIST.  Fixed, so that
+     * position hashes are the same from one run to the next.
+     */
+    private static final long ZOBRIST_SEED = 0x6a756d703631L;
+    /**
+     * Zobrist keys: ZOBRIST[n][c] is a random 64-bit key for square #N
+     * having packed contents C.  The hash of a position is the
+     * exclusive or of the keys of all its squares.
+     */
+    private static final long[][] ZOBRIST =
+        new long[Defaults.MAX_BOARD_SIZE * Defaults.MAX_BOARD_SIZE]
+        [BYTE_MASK + 1];
+
+    static {
+        Random keys = new Random(ZOBRIST_SEED);
+        for (long[] square : ZOBRIST) {
+            for (int c = 0; c < square.length; c += 1) {
+                square[c] = keys.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Neighbor tables (see adjacencies) for all legal board sizes,
+     * indexed by size.
+     */
+    private static final int[][][] ADJACENT =
+        new int[Defaults.MAX_BOARD_SIZE + 1][][];
+
+    static {
+        for (int N = 1; N < ADJACENT.length; N += 1) {
+            ADJACENT[N] = adjacencies(N);
+        }
+    }
+
+    /**
+     * Number of symmetries of a square board: rotations clockwise by 0,
+     * 90, 180, and 270 degrees, then reflections about the vertical
+     * axis, the horizontal axis, the main diagonal, and the other
+     * diagonal, numbered in that order.
+     */
+    static final int NUM_SYMMETRIES = 8;
+    /**
+     * INVERSE_SYMMETRY[K] is the number of the symmetry that undoes
+     * symmetry #K.
+     */
+    static final int[] INVERSE_SYMMETRY = { 0, 3, 2, 1, 4, 5, 6, 7 };
+    /**
+     * Symmetry tables (see symmetries) for all legal board sizes,
+     * indexed by size.
+     */
+    private static final int[][][] SYMMETRIES =
+        new int[Defaults.MAX_BOARD_SIZE + 1][][];
+
+    static {
+        for (int N = 1; N < SYMMETRIES.length; N += 1) {
+            SYMMETRIES[N] = symmetries(N);
+        }
+    }
+
+    /**
+     * Index (see feature) of the number of squares a side owns.
+     */
+    static final int OWNED = 0;
+    /**
+     * Index of the number of spots on a side's squares.
+     */
+    static final int SPOTS = 1;
+    /**
+     * Index of the number of a side's critical squares: those one spot
+     * short of overfull.
+     */
+    static final int CRITICAL = 2;
+    /**
+     * Index of the number of (square, neighbor) pairs in which the
+     * square is the side's and the neighbor is a critical square of its
+     * opponent, so that the square would be taken if the neighbor
+     * jumped.
+     */
+    static final int VULNERABLE = 3;
+    /**
+     * Index of the number of corner squares a side owns.
+     */
+    static final int CORNERS = 4;
+    /**
+     * Index of the number of edge squares (other than corners) a side
+     * owns.
+     */
+    static final int EDGES = 5;
+    /**
+     * Number of features kept for each side.
+     */
+    static final int NUM_FEATURES = 6;
+
+    /**
+     * Used in jump as an explicit stack of the squares whose spots are
+     * being distributed.  Allocated here to cut down on allocations.
+     */
+    private int[] _jumpSquares = new int[16];
+    /**
+     * For each entry of _jumpSquares, the index in its neighbor table of
+     * the next neighbor due to receive a spot.
+     */
+    private int[] _jumpNext = new int[16];
+    /**
+     * The undo journal: one entry for each change made to a square since
+     * the undo history was last cleared, oldest first.  Each entry holds
+     * the square number and its packed contents before and after the
+     * change (see journalEntry).
+     */
+    private int[] _journal = new int[64];
+    /**
+     * The number of entries in use in _journal.
+     */
+    private int _journalSize;
+    /**
+     * For each move in the undo history, the size of _journal when it
+     * began (see markUndo).
+     */
+    private int[] _moveStarts = new int[16];
+    /**
+     * The number of moves in the undo history.
+     */
+    private int _numMoves;
     /**
      * A read-only version of this Board.
      */
@@ -47,9 +189,39 @@ class Board {
      */
     private Consumer<Board> _notifier;
     /**
-     * stores the contents of the board in a 2D array.
+     * The contents of the board, indexed by square number.  Each entry
+     * packs the square's Side and number of spots (see pack).
+     */
+    private byte[] _cells;
+    /**
+     * The number of rows and of columns of the board.
      */
-    private Square[][] board;
+    private int _size;
+    /**
+     * Neighbor table for the current size (see adjacencies).
+     */
+    private int[][] _adjacent;
+    /**
+     * Symmetry table for the current size (see symmetries).
+     */
+    private int[][] _symmetries;
+    /**
+     * The total number of spots on the board, kept up to date by
+     * internalSet.
+     */
+    private int _numSpots;
+    /**
+     * The features (see feature) of each Side: the value of feature F
+     * for the Side with ordinal S is element S * NUM_FEATURES + F.
+     * Kept up to date by internalSet.
+     */
+    private final int[] _features = new int[SIDES.length * NUM_FEATURES];
+    /**
+     * The Zobrist hashes (see ZOBRIST) of my contents transformed by
+     * each symmetry (see symmetries), kept up to date by internalSet.
+     * Element #0, for the identity, is my position hash.
+     */
+    private final long[] _hashes = new long[NUM_SYMMETRIES];
 
     /**
      * An uninitialized Board.  Only for use by subtypes.
@@ -63,13 +235,9 @@ class Board {
      */
     Board(int N) {
         this();
-        board = new Square[N][N];
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                board[i][j] = Square.INITIAL;
-            }
-        }
-        markUndo();
+        resize(N);
+        Arrays.fill(_cells, INITIAL);
+        recount();
     }
 
     /**
@@ -78,12 +246,7 @@ class Board {
      */
     Board(Board board0) {
         this(board0.size());
-        for (int i = 0; i < board0.size(); i++) {
-            for (int j = 0; j < board0.size(); j++) {
-                board[i][j] = board0.get(sqNum(i + 1, j + 1));
-            }
-        }
-        history = new ArrayList<>();
+        internalCopy(board0);
         _notifier = NOP;
         _readonlyBoard = new ConstantBoard(this);
     }
@@ -100,28 +263,37 @@ class Board {
      * the undo history and sets the number of moves to 0.
      */
     void clear(int N) {
-        board = new Square[N][N];
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                board[i][j] = Square.INITIAL;
-            }
+        if (N != _size) {
+            resize(N);
         }
-        history = new ArrayList<>();
+        Arrays.fill(_cells, INITIAL);
+        recount();
+        clearUndo();
         announce();
     }
 
     /**
-     * Copy the contents of BOARD into me.
+     * Copy the contents of BOARD into me, clearing my undo history.
      *
      * @param x Board to copy from.
      */
     void copy(Board x) {
-        this.board = new Square[x.board.length][x.board.length];
-        for (int i = 0; i < this.board.length; i++) {
-            for (int j = 0; j < this.board[i].length; j++) {
-                this.board[i][j] = x.board[i][j];
-            }
+        if (x.size() != _size) {
+            resize(x.size());
         }
+        internalCopy(x);
+        clearUndo();
+    }
+
+    /**
+     * Reallocate my contents for an N x N board.  The contents are
+     * left uninitialized.
+     */
+    private void resize(int N) {
+        _size = N;
+        _cells = new byte[N * N];
+        _adjacent = adjacencies(N);
+        _symmetries = symmetries(N);
     }
 
     /**
@@ -132,18 +304,51 @@ class Board {
      */
     private void internalCopy(Board x) {
         assert size() == x.size();
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                board[i][j] = x.board[i][j];
+        System.arraycopy(x.backingBoard()._cells, 0, _cells, 0,
+                _cells.length);
+        recount();
+    }
+
+    /**
+     * Recompute the running total of spots, the features of each Side,
+     * and my position hashes, from my contents.
+     */
+    private void recount() {
+        _numSpots = 0;
+        Arrays.fill(_hashes, 0);
+        Arrays.fill(_features, 0);
+        for (int n = 0; n < _cells.length; n += 1) {
+            byte cell = _cells[n];
+            _numSpots += cell >> SIDE_BITS;
+            countSquare(n, cell, 1);
+            int side = cell & SIDE_MASK;
+            if (side != WHITE_ORDINAL && critical(n, cell)) {
+                for (int m : _adjacent[n]) {
+                    int other = _cells[m] & SIDE_MASK;
+                    if (other != WHITE_ORDINAL && other != side) {
+                        _features[other * NUM_FEATURES + VULNERABLE] += 1;
+                    }
+                }
+            }
+            for (int k = 0; k < NUM_SYMMETRIES; k += 1) {
+                _hashes[k] ^= ZOBRIST[_symmetries[k][n]][cell & BYTE_MASK];
             }
         }
     }
 
+    /**
+     * Return the Board that actually holds my contents: myself, except
+     * for views such as ConstantBoard.
+     */
+    Board backingBoard() {
+        return this;
+    }
+
     /**
      * Return the number of rows and of columns of THIS.
      */
     int size() {
-        return board.length;
+        return _size;
     }
 
     /**
@@ -160,22 +365,105 @@ class Board {
      * size() - 2*size() - 1, etc.
      */
     Square get(int n) {
-        int row = row(n);
-        int col = col(n);
-        return board[row - 1][col - 1];
+        int cell = _cells[n];
+        return Square.square(SIDES[cell & SIDE_MASK], cell >> SIDE_BITS);
+    }
+
+    /**
+     * Return the packed representation of a square controlled by SIDE
+     * with SPOTS spots.  As for Square.square, a square with no spots
+     * or controlled by WHITE is INITIAL.
+     */
+    private static byte pack(Side side, int spots) {
+        if (spots == 0 || side == WHITE) {
+            side = WHITE;
+            spots = 1;
+        }
+        return (byte) (spots << SIDE_BITS | side.ordinal());
+    }
+
+    /**
+     * Return the number of spots on square #N.
+     */
+    private int spots(int n) {
+        return _cells[n] >> SIDE_BITS;
+    }
+
+    /**
+     * Return the ordinal of the Side controlling square #N.
+     */
+    private int sideOrdinal(int n) {
+        return _cells[n] & SIDE_MASK;
     }
 
     /**
      * Returns the total number of spots on the board.
      */
     int numPieces() {
-        int count = 0;
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board.length; j++) {
-                count += board[i][j].getSpots();
+        return _numSpots;
+    }
+
+    /**
+     * Returns a 64-bit hash of the current position.  Equal positions on
+     * boards of the same size have equal hashes, regardless of how they
+     * were reached.
+     */
+    long positionHash() {
+        return _hashes[0];
+    }
+
+    /**
+     * Returns a 64-bit hash of the current position that is the same for
+     * all positions obtained from it by symmetries of the board: the
+     * least of their position hashes.
+     */
+    long canonicalHash() {
+        return _hashes[canonicalSymmetry()];
+    }
+
+    /**
+     * Returns the number of the symmetry (see symmetries) that carries
+     * the current position to its canonical form: the one whose
+     * position hash is canonicalHash().  A square #N of the current
+     * position corresponds to square symmetries(size())[K][N] of the
+     * canonical form, where K is the result.
+     */
+    int canonicalSymmetry() {
+        int best = 0;
+        for (int k = 1; k < NUM_SYMMETRIES; k += 1) {
+            if (_hashes[k] < _hashes[best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns a bit mask of the symmetries that leave the current
+     * position unchanged: bit K is set iff symmetry #K (see symmetries)
+     * does.  Bit 0, for the identity, is always set.
+     */
+    int selfSymmetries() {
+        int mask = 1;
+        for (int k = 1; k < NUM_SYMMETRIES; k += 1) {
+            if (_hashes[k] == _hashes[0] && invariant(_symmetries[k])) {
+                mask |= 1 << k;
             }
         }
-        return count;
+        return mask;
+    }
+
+    /**
+     * Return true iff permuting my squares by SYMMETRY (one of
+     * _symmetries) leaves my contents unchanged.
+     */
+    private boolean invariant(int[] symmetry) {
+        for (int n = 0; n < _cells.length; n += 1) {
+            if (_cells[symmetry[n]] != _cells[n]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -249,7 +537,8 @@ class Board {
      * to square #N.
      */
     boolean isLegal(Side player, int n) {
-        return player == get(n).getSide() || get(n).getSide() == WHITE;
+        int side = sideOrdinal(n);
+        return side == player.ordinal() || side == WHITE.ordinal();
     }
 
     /**
@@ -264,33 +553,30 @@ class Board {
      * and otherwise null.
      */
     final Side getWinner() {
-        Side winning = board[0][0].getSide();
-        if (winning == WHITE) {
+        int all = size() * size();
+        if (numOfSide(RED) == all) {
+            return RED;
+        } else if (numOfSide(BLUE) == all) {
+            return BLUE;
+        } else {
             return null;
         }
-        for (int i = 0; i < size(); i++) {
-            for (int j = 0; j < size(); j++) {
-                if (board[i][j].getSide() != winning) {
-                    return null;
-                }
-            }
-        }
-        return winning;
     }
 
     /**
      * Return the number of squares of given SIDE.
      */
     int numOfSide(Side side) {
-        int count = 0;
-        for (int i = 0; i < size(); i++) {
-            for (int j = 0; j < size(); j++) {
-                if (board[i][j].getSide() == side) {
-                    count += 1;
-                }
-            }
-        }
-        return count;
+        return _features[side.ordinal() * NUM_FEATURES + OWNED];
+    }
+
+    /**
+     * Return the value for SIDE of feature F, one of OWNED, SPOTS,
+     * CRITICAL, VULNERABLE, CORNERS, or EDGES.  Features are kept up to
+     * date as squares change, so this takes constant time.
+     */
+    int feature(int f, Side side) {
+        return _features[side.ordinal() * NUM_FEATURES + f];
     }
 
     /**
@@ -305,12 +591,34 @@ class Board {
      * Add a spot from PLAYER at square #N.  Assumes isLegal(PLAYER, N).
      */
     void addSpot(Side player, int n) {
-        internalSet(n, get(n).getSpots() + 1, player);
+        markUndo();
+        internalSet(n, spots(n) + 1, player);
         if (overfull(n) && getWinner() == null) {
             jump(n);
         }
-        markUndo();
+    }
+
+    /**
+     * Add a spot from PLAYER at square #N, exactly as for addSpot, and
+     * return a token that may be passed to unmakeMove to take the move
+     * back.  Intended for game-tree search, which may apply and retract
+     * moves on one Board without allocating (once the undo journal has
+     * grown to the depth of the search).  Assumes isLegal(PLAYER, N).
+     */
+    int makeMove(Side player, int n) {
+        int token = _numMoves;
+        addSpot(player, n);
+        return token;
+    }
 
+    /**
+     * Take back the move that returned TOKEN from makeMove, together
+     * with any moves made after it.
+     */
+    void unmakeMove(int token) {
+        while (_numMoves > token) {
+            undo();
+        }
     }
 
     /**
@@ -337,160 +645,237 @@ class Board {
      * if NUM > 0 (otherwise, white). Does not announce changes.
      */
     private void internalSet(int n, int num, Side player) {
-        int row = row(n);
-        int col = col(n);
-
-        board[row - 1][col - 1] = Square.square(player, num);
-
+        byte cell = pack(player, num);
+        if (_numMoves > 0) {
+            if (_journalSize == _journal.length) {
+                _journal = Arrays.copyOf(_journal, 2 * _journalSize);
+            }
+            _journal[_journalSize] = journalEntry(n, _cells[n], cell);
+            _journalSize += 1;
+        }
+        setCell(n, cell);
+    }
 
+    /**
+     * Set square #N to the packed value CELL, updating the running
+     * totals, but without recording the change in the undo journal.
+     */
+    private void setCell(int n, byte cell) {
+        byte old = _cells[n];
+        _numSpots += (cell >> SIDE_BITS) - (old >> SIDE_BITS);
+        countSquare(n, old, -1);
+        countSquare(n, cell, 1);
+        countVulnerable(n, old, -1);
+        countVulnerable(n, cell, 1);
+        for (int k = 0; k < NUM_SYMMETRIES; k += 1) {
+            long[] keys = ZOBRIST[_symmetries[k][n]];
+            _hashes[k] ^= keys[old & BYTE_MASK] ^ keys[cell & BYTE_MASK];
+        }
+        _cells[n] = cell;
     }
 
     /**
-     * Undo the effects of one move (that is, one addSpot command).  One
-     * can only undo back to the last point at which the undo history
-     * was cleared, or the construction of this Board.
+     * Return true iff square #N would be critical (one spot short of
+     * overfull) with packed contents CELL.
      */
-    void undo() {
+    private boolean critical(int n, byte cell) {
+        return cell >> SIDE_BITS >= _adjacent[n].length;
+    }
 
-        if (history.size() > 1) {
-            history.remove(history.size() - 1);
-            board = history.get(history.size() - 1);
+    /**
+     * Add SIGN times the contribution of square #N with packed contents
+     * CELL to the features of its owner, other than VULNERABLE.
+     */
+    private void countSquare(int n, byte cell, int sign) {
+        int base = (cell & SIDE_MASK) * NUM_FEATURES;
+        int degree = _adjacent[n].length;
+        _features[base + OWNED] += sign;
+        _features[base + SPOTS] += sign * (cell >> SIDE_BITS);
+        if (cell >> SIDE_BITS >= degree) {
+            _features[base + CRITICAL] += sign;
+        }
+        if (degree == 2) {
+            _features[base + CORNERS] += sign;
+        } else if (degree == 3) {
+            _features[base + EDGES] += sign;
         }
     }
 
     /**
-     * Record the beginning of a move in the undo history.
+     * Add SIGN times the contribution to the VULNERABLE features of the
+     * pairs formed by square #N, with packed contents CELL, and each of
+     * its neighbors, with their current contents.
      */
-    private void markUndo() {
-        Square[][] newArr = new Square[board.length][board[0].length];
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[0].length; j++) {
-                newArr[i][j] = board[i][j];
+    private void countVulnerable(int n, byte cell, int sign) {
+        int side = cell & SIDE_MASK;
+        if (side == WHITE_ORDINAL) {
+            return;
+        }
+        boolean critical = critical(n, cell);
+        for (int m : _adjacent[n]) {
+            byte neighbor = _cells[m];
+            int other = neighbor & SIDE_MASK;
+            if (other == WHITE_ORDINAL || other == side) {
+                continue;
+            }
+            if (critical) {
+                _features[other * NUM_FEATURES + VULNERABLE] += sign;
+            }
+            if (critical(m, neighbor)) {
+                _features[side * NUM_FEATURES + VULNERABLE] += sign;
             }
         }
-        history.add(newArr);
     }
 
     /**
-     * Add DELTASPOTS spots of side PLAYER to row R, column C,
-     * updating counts of numbers of squares of each color.
+     * Undo the effects of one move (that is, one addSpot command).  One
+     * can only undo back to the last point at which the undo history
+     * was cleared, or the construction of this Board.  Takes time
+     * proportional to the number of squares the move changed.
      */
-    private void simpleAdd(Side player, int r, int c, int deltaSpots) {
-        internalSet(r, c, deltaSpots + get(r, c).getSpots(), player);
+    void undo() {
+        if (_numMoves > 0) {
+            _numMoves -= 1;
+            int start = _moveStarts[_numMoves];
+            while (_journalSize > start) {
+                _journalSize -= 1;
+                int entry = _journal[_journalSize];
+                setCell(entry >>> JOURNAL_SQUARE_SHIFT,
+                        (byte) (entry >> Byte.SIZE));
+            }
+        }
     }
 
     /**
-     * Add DELTASPOTS spots of color PLAYER to square #N,
-     * updating counts of numbers of squares of each color.
+     * Record the beginning of a move in the undo history.  Until the
+     * next call, every change to a square is journaled as part of this
+     * move.
      */
-    private void simpleAdd(Side player, int n, int deltaSpots) {
-        if (getWinner() != null) {
-            return;
+    private void markUndo() {
+        if (_numMoves == _moveStarts.length) {
+            _moveStarts = Arrays.copyOf(_moveStarts, 2 * _numMoves);
         }
-        internalSet(n, deltaSpots + get(n).getSpots(), player);
+        _moveStarts[_numMoves] = _journalSize;
+        _numMoves += 1;
     }
 
     /**
-     * Do all jumping on this board, assuming that initially, S is the only
-     * square that might be over-full.
-     *
-     * @param n      spot number
-     * @param player color of player Side
+     * Clear the undo history.
      */
-    private void addJumpSpot(int n, Side player) {
-        internalSet(n, get(n).getSpots() + 1, player);
-        if (overfull(n) && getWinner() == null) {
-            jump(n);
-        }
+    private void clearUndo() {
+        _numMoves = 0;
+        _journalSize = 0;
+    }
+
+    /**
+     * Return the undo-journal entry recording that square #N changed
+     * from packed value OLD to packed value CELL.
+     */
+    private static int journalEntry(int n, byte old, byte cell) {
+        return n << JOURNAL_SQUARE_SHIFT | (old & BYTE_MASK) << Byte.SIZE
+            | (cell & BYTE_MASK);
     }
 
     /**
      * Do all jumping on this board, assuming that initially, S is the only
-     * square that might be over-full.
+     * square that might be over-full.  Jumps are processed depth first:
+     * each square that becomes over-full while its neighbor is being
+     * handed spots jumps at once, before that neighbor's remaining
+     * neighbors receive theirs.  Once the game is won, squares still
+     * receive the spots owed to them, but nothing jumps any more.
      */
     private void jump(int S) {
-        internalSet(S, 1, get(S).getSide());
-        ArrayList<Integer> neighbors = getAdjacent(S);
-        for (int i = 0; i < neighbors.size(); i++) {
-            addJumpSpot(neighbors.get(i), get(S).getSide());
+        int depth = pushJump(S, 0);
+        while (depth > 0) {
+            int top = depth - 1;
+            int sq = _jumpSquares[top];
+            int[] adjacent = _adjacent[sq];
+            if (_jumpNext[top] == adjacent.length) {
+                depth = top;
+                continue;
+            }
+            int nb = adjacent[_jumpNext[top]];
+            _jumpNext[top] += 1;
+            internalSet(nb, spots(nb) + 1, SIDES[sideOrdinal(sq)]);
+            if (overfull(nb) && getWinner() == null) {
+                depth = pushJump(nb, depth);
+            }
         }
     }
 
     /**
-     * Gets all the neighbors.
-     *
-     * @param s square to find neighbors for.
-     * @return ArrayList<Integer> arraylist containingi all neighbors
+     * Jump over-full square S, leaving it with one spot, and push it onto
+     * the jump stack, which currently holds DEPTH squares, so that its
+     * neighbors will receive its spots.  Returns the new depth.
      */
-    private ArrayList<Integer> getAdjacent(int s) {
-        ArrayList<Integer> all = new ArrayList<>();
-        if (exists(row(s) + 1, col(s))) {
-            all.add(sqNum(row(s) + 1, col(s)));
-        }
-        if (exists(row(s) - 1, col(s))) {
-            all.add(sqNum(row(s) - 1, col(s)));
-        }
-        if (exists(row(s), col(s) + 1)) {
-            all.add(sqNum(row(s), col(s) + 1));
+    private int pushJump(int S, int depth) {
+        internalSet(S, 1, SIDES[sideOrdinal(S)]);
+        if (depth == _jumpSquares.length) {
+            _jumpSquares = Arrays.copyOf(_jumpSquares, 2 * depth);
+            _jumpNext = Arrays.copyOf(_jumpNext, 2 * depth);
         }
-        if (exists(row(s), col(s) - 1)) {
-            all.add(sqNum(row(s), col(s) - 1));
-        }
-        return all;
-
+        _jumpSquares[depth] = S;
+        _jumpNext[depth] = 0;
+        return depth + 1;
     }
 
     /**
-     * Does the jumping for blue.
-     *
-     * @param S square which must be jumped
+     * Return the neighbor table for an N x N board: element #S lists the
+     * numbers of the squares adjacent to square #S, in the order below,
+     * above, right, left.  The result may be shared, and must not be
+     * modified.
      */
-
-    public void doRepeat(int S) {
-        if (row(S) > 1) {
-            if (getWinner() != null) {
-                return;
-            }
-            simpleAdd(BLUE, sqNum(row(S), col(S)), -1);
-            simpleAdd(BLUE, sqNum(row(S) - 1, col(S)), 1);
-            _workQueue.add(sqNum(row(S) - 1, col(S)));
-            if (getWinner() != null) {
-                return;
-            }
+    static int[][] adjacencies(int N) {
+        if (N < ADJACENT.length && ADJACENT[N] != null) {
+            return ADJACENT[N];
         }
-        if (col(S) > 1) {
-            if (getWinner() != null) {
-                return;
+        int[][] result = new int[N * N][];
+        int[] all = new int[4];
+        for (int s = 0; s < N * N; s += 1) {
+            int r = s / N, c = s % N, k;
+            k = 0;
+            if (r + 1 < N) {
+                all[k++] = s + N;
             }
-            simpleAdd(BLUE, sqNum(row(S), col(S)), -1);
-            simpleAdd(BLUE, sqNum(row(S), col(S) - 1), 1);
-            _workQueue.add(sqNum(row(S), col(S) - 1));
-            if (getWinner() != null) {
-                return;
+            if (r > 0) {
+                all[k++] = s - N;
             }
-        }
-        if (row(S) < size()) {
-            if (getWinner() != null) {
-                return;
+            if (c + 1 < N) {
+                all[k++] = s + 1;
             }
-            simpleAdd(BLUE, sqNum(row(S), col(S)), -1);
-            simpleAdd(BLUE, sqNum(row(S) + 1, col(S)), 1);
-            _workQueue.add(sqNum(row(S) + 1, col(S)));
-            if (getWinner() != null) {
-                return;
+            if (c > 0) {
+                all[k++] = s - 1;
             }
+            result[s] = Arrays.copyOf(all, k);
         }
-        if (col(S) < size()) {
-            if (getWinner() != null) {
-                return;
-            }
-            simpleAdd(BLUE, sqNum(row(S), col(S)), -1);
-            simpleAdd(BLUE, sqNum(row(S), col(S) + 1), 1);
-            _workQueue.add(sqNum(row(S), col(S) + 1));
-            if (getWinner() != null) {
-                return;
-            }
+        return result;
+    }
+
+    /**
+     * Return the symmetry table for an N x N board: element #K is the
+     * permutation of square numbers effected by symmetry #K (see
+     * NUM_SYMMETRIES), so that it carries square #S to square
+     * symmetries(N)[K][S].  The result may be shared, and must not be
+     * modified.
+     */
+    static int[][] symmetries(int N) {
+        if (N < SYMMETRIES.length && SYMMETRIES[N] != null) {
+            return SYMMETRIES[N];
+        }
+        int[][] result = new int[NUM_SYMMETRIES][N * N];
+        int last = N - 1;
+        for (int s = 0; s < N * N; s += 1) {
+            int r = s / N, c = s % N;
+            result[0][s] = s;
+            result[1][s] = c * N + last - r;
+            result[2][s] = (last - r) * N + last - c;
+            result[3][s] = (last - c) * N + r;
+            result[4][s] = r * N + last - c;
+            result[5][s] = (last - r) * N + c;
+            result[6][s] = c * N + r;
+            result[7][s] = (last - c) * N + last - r;
         }
+        return result;
     }
 
     /**
@@ -500,7 +885,15 @@ class Board {
      * @return boolean representing if the square is overfull or not.
      */
     public boolean overfull(int S) {
-        return get(S).getSpots() > neighbors(S);
+        return spots(S) > _adjacent[S].length;
+    }
+
+    /**
+     * Return true iff square #N is critical: adding one more spot to it
+     * would make it overfull, and so start a cascade.
+     */
+    boolean critical(int n) {
+        return spots(n) >= _adjacent[n].length;
     }
 
     /**
@@ -510,16 +903,18 @@ class Board {
     public String toString() {
         Formatter out = new Formatter();
         out.format("===\n");
-        for (int i = 0; i < board.length; i++) {
-            out.format("   ");
-            for (int j = 0; j < board[0].length; j++) {
-                char code = board[i][j].getSide().toString().charAt(0);
-                if (code == 'w') {
-                    code = '-';
-                }
-                out.format(" " + board[i][j].getSpots() + code + "");
+        for (int n = 0; n < _cells.length; n += 1) {
+            if (n % _size == 0) {
+                out.format("   ");
+            }
+            char code = SIDES[sideOrdinal(n)].toString().charAt(0);
+            if (code == 'w') {
+                code = '-';
+            }
+            out.format(" " + spots(n) + code + "");
+            if (n % _size == _size - 1) {
+                out.format("\n");
             }
-            out.format("\n");
         }
         out.format("===");
         return out.toString();
@@ -569,7 +964,10 @@ class Board {
      * Returns the number of neighbors of square #N.
      */
     int neighbors(int n) {
-        return neighbors(row(n), col(n));
+        if (_adjacent == null) {
+            return neighbors(row(n), col(n));
+        }
+        return _adjacent[n].length;
     }
 
     @Override
@@ -577,25 +975,16 @@ class Board {
         if (!(obj instanceof Board)) {
             return false;
         } else {
-            Board B = (Board) obj;
-            if (B.board.length != board.length
-                    || B.board[0].length != board[0].length) {
-                return false;
-            }
-            for (int i = 0; i < B.board.length; i++) {
-                for (int j = 0; j < B.board[0].length; j++) {
-                    if (B.board[i][j] != board[i][j]) {
-                        return false;
-                    }
-                }
-            }
-            return true;
+            Board B = ((Board) obj).backingBoard();
+            return B._size == _size && B._hashes[0] == _hashes[0]
+                && Arrays.equals(B._cells, _cells);
         }
     }
 
     @Override
     public int hashCode() {
-        return numPieces();
+        long hash = positionHash();
+        return (int) (hash ^ (hash >>> Integer.SIZE));
     }
 
     /**
@@ -1,5 +1,7 @@
 package jump61;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 import static jump61.Side.*;
@@ -87,9 +89,196 @@ public class BoardTest {
         assertEquals("extra squares filled", contents.length / 4, c);
     }
 
+    @Test
+    public void testUndoCascade() {
+        Board B = new Board(3);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 3, 3);
+        B.addSpot(RED, 1, 1);
+        checkBoard("#3", B, 1, 1, 1, RED, 1, 2, 2, RED, 2, 1, 2, RED,
+                3, 3, 2, BLUE);
+        B.undo();
+        checkBoard("#3U", B, 1, 1, 2, RED, 3, 3, 2, BLUE);
+        B.addSpot(RED, 2, 2);
+        checkBoard("#3'", B, 1, 1, 2, RED, 2, 2, 2, RED, 3, 3, 2, BLUE);
+        B.undo();
+        B.undo();
+        checkBoard("#1U", B, 1, 1, 2, RED);
+        assertEquals("wrong spot total", 10, B.numPieces());
+        B.clear(3);
+        B.addSpot(RED, 2, 2);
+        B.undo();
+        checkBoard("#0U", B);
+    }
+
+    @Test
+    public void testMakeUnmake() {
+        Board B = new Board(3);
+        B.addSpot(RED, 1, 1);
+        Board before = new Board(B);
+        int token = B.makeMove(BLUE, B.sqNum(3, 3));
+        B.makeMove(RED, B.sqNum(1, 1));
+        checkBoard("#3", B, 1, 1, 1, RED, 1, 2, 2, RED, 2, 1, 2, RED,
+                3, 3, 2, BLUE);
+        B.unmakeMove(token);
+        assertEquals("unmake did not restore position", before, B);
+        B.undo();
+        checkBoard("#0U", B);
+    }
+
+    @Test
+    public void testCascade() {
+        Board B = new Board(3);
+        B.set(1, 1, 2, RED);
+        B.set(1, 2, 3, RED);
+        B.set(2, 2, 1, BLUE);
+        B.addSpot(RED, 1, 1);
+        checkBoard("#1", B, 1, 1, 2, RED, 1, 2, 1, RED, 1, 3, 2, RED,
+                2, 1, 2, RED, 2, 2, 2, RED);
+        assertEquals("wrong spot total", 13, B.numPieces());
+        assertEquals("wrong count", 5, B.numOfSide(RED));
+        assertEquals("wrong count", 0, B.numOfSide(BLUE));
+        assertEquals("wrong count", 4, B.numOfSide(WHITE));
+    }
+
+    @Test
+    public void testHash() {
+        Board B = new Board(4), C = new Board(4);
+        long initial = B.positionHash();
+        assertEquals("initial hashes differ", initial, C.positionHash());
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 4, 4);
+        B.addSpot(RED, 2, 3);
+        C.addSpot(RED, 2, 3);
+        C.addSpot(BLUE, 4, 4);
+        C.addSpot(RED, 1, 1);
+        assertEquals("transposed hashes differ",
+                B.positionHash(), C.positionHash());
+        assertEquals(B.hashCode(), C.hashCode());
+        assertEquals(B, C);
+        assertNotEquals("hash unchanged by move", initial,
+                B.positionHash());
+        B.undo();
+        B.undo();
+        B.undo();
+        assertEquals("undo did not restore hash", initial,
+                B.positionHash());
+        assertEquals("copy has different hash", C.positionHash(),
+                new Board(C).positionHash());
+    }
+
+    @Test
+    public void testFeatures() {
+        Board B = new Board(3);
+        B.set(1, 1, 2, RED);
+        B.set(1, 2, 1, BLUE);
+        B.set(2, 2, 4, BLUE);
+        B.set(2, 1, 1, RED);
+        checkFeatures("red", B, RED, 2, 3, 1, 1, 1, 1);
+        checkFeatures("blue", B, BLUE, 2, 5, 1, 1, 0, 1);
+
+        Board C = new Board(5);
+        Random random = new Random(61);
+        int moves;
+        for (moves = 0; moves < 40 && C.getWinner() == null; moves += 1) {
+            int n;
+            do {
+                n = random.nextInt(25);
+            } while (!C.isLegal(C.whoseMove(), n));
+            C.addSpot(C.whoseMove(), n);
+            checkFeatures(C, new Board(C));
+        }
+        for (; moves > 0; moves -= 1) {
+            C.undo();
+        }
+        checkFeatures(C, new Board(5));
+    }
+
+    /**
+     * Assert that the features (see Board.feature) of SIDE on B, in the
+     * order OWNED, SPOTS, CRITICAL, VULNERABLE, CORNERS, EDGES, are
+     * FEATURES.  MSG identifies the check.
+     */
+    private void checkFeatures(String msg, Board B, Side side,
+                               int... features) {
+        for (int f = 0; f < Board.NUM_FEATURES; f += 1) {
+            assertEquals(msg + " feature " + f, features[f],
+                         B.feature(f, side));
+        }
+    }
+
+    /**
+     * Assert that the features of both sides on B, kept up to date as it
+     * changed, are the same as those of EXPECTED.
+     */
+    private void checkFeatures(Board B, Board expected) {
+        for (Side side : new Side[] { RED, BLUE }) {
+            for (int f = 0; f < Board.NUM_FEATURES; f += 1) {
+                assertEquals(side + " feature " + f,
+                             expected.feature(f, side), B.feature(f, side));
+            }
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        Board B = new Board(4);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 3, 2);
+        Board C = new Board(B);
+        assertEquals("copy differs", B, C);
+        checkBoard("#C", C, 1, 1, 2, RED, 3, 2, 2, BLUE);
+        Board D = new Board(2);
+        D.copy(new ConstantBoard(C));
+        assertEquals("bad length", 4, D.size());
+        assertEquals("copy differs", C, D);
+        C.addSpot(RED, 1, 1);
+        assertFalse("copies share contents", C.equals(B));
+        assertEquals("copy not independent", 2, B.get(1, 1).getSpots());
+    }
+
     @Test
     public void testWin() {
         Board c = new Board(2);
         assertFalse(c.getWinner() != null);
+        c.set(1, 1, 2, BLUE);
+        c.set(1, 2, 1, BLUE);
+        c.set(2, 1, 1, BLUE);
+        assertNull(c.getWinner());
+        c.addSpot(BLUE, 2, 2);
+        assertEquals("wrong winner", BLUE, c.getWinner());
+        assertEquals("wrong winner", BLUE,
+                new ConstantBoard(c).getWinner());
+    }
+
+    @Test
+    public void testSymmetry() {
+        Board B = new Board(5);
+        assertEquals("initial position", 0xff, B.selfSymmetries());
+        B.addSpot(RED, 3, 3);
+        assertEquals("center move", 0xff, B.selfSymmetries());
+        B.addSpot(BLUE, 1, 1);
+        B.addSpot(RED, 2, 4);
+        B.addSpot(BLUE, 1, 1);
+        assertEquals("asymmetric position", 1, B.selfSymmetries());
+        int[][] symmetries = Board.symmetries(5);
+        for (int k = 0; k < Board.NUM_SYMMETRIES; k += 1) {
+            Board C = new Board(5);
+            for (int n = 0; n < 25; n += 1) {
+                Square sq = B.get(n);
+                C.set(C.row(symmetries[k][n]), C.col(symmetries[k][n]),
+                      sq.getSpots(), sq.getSide());
+            }
+            assertEquals("canonical hash", B.canonicalHash(),
+                         C.canonicalHash());
+            int back = Board.INVERSE_SYMMETRY[k];
+            for (int n = 0; n < 25; n += 1) {
+                assertEquals(n, symmetries[back][symmetries[k][n]]);
+            }
+        }
+        Board D = new Board(5);
+        D.set(1, 2, 2, RED);
+        D.set(2, 1, 2, RED);
+        assertEquals("diagonal symmetry", 1 | 1 << 6, D.selfSymmetries());
     }
 }
@@ -4,7 +4,7 @@ import ucb.gui2.Pad;
 
 import java.awt.Color;
 import java.awt.event.MouseEvent;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.awt.Graphics2D;
 import java.awt.Dimension;
 import java.awt.BasicStroke;
@@ -66,13 +66,13 @@ class BoardWidget extends Pad {
     /**
      * Destination for commands derived from mouse clicks.
      */
-    private final ArrayBlockingQueue<String> _commandQueue;
+    private final BlockingQueue<String> _commandQueue;
 
     /**
      * A new BoardWidget that monitors and displays a game Board, and
      * converts mouse clicks to commands to COMMANDQUEUE.
      */
-    BoardWidget(ArrayBlockingQueue<String> commandQueue) {
+    BoardWidget(BlockingQueue<String> commandQueue) {
         _commandQueue = commandQueue;
         _side = 6 * SQUARE_SEP + SEPARATOR_SIZE;
         setMouseHandler("click", this::doClick);
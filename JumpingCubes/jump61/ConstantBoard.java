@@ -27,6 +27,11 @@ class ConstantBoard extends Board {
         return this;
     }
 
+    @Override
+    Board backingBoard() {
+        return _board.backingBoard();
+    }
+
     @Override
     int size() {
         return _board.size();
@@ -42,6 +47,26 @@ class ConstantBoard extends Board {
         return _board.numPieces();
     }
 
+    @Override
+    long positionHash() {
+        return _board.positionHash();
+    }
+
+    @Override
+    long canonicalHash() {
+        return _board.canonicalHash();
+    }
+
+    @Override
+    int canonicalSymmetry() {
+        return _board.canonicalSymmetry();
+    }
+
+    @Override
+    int selfSymmetries() {
+        return _board.selfSymmetries();
+    }
+
     @Override
     Side whoseMove() {
         return _board.whoseMove();
@@ -52,6 +77,11 @@ class ConstantBoard extends Board {
         return _board.isLegal(player, r, c);
     }
 
+    @Override
+    boolean isLegal(Side player, int n) {
+        return _board.isLegal(player, n);
+    }
+
     @Override
     boolean isLegal(Side player) {
         return _board.isLegal(player);
@@ -62,6 +92,21 @@ class ConstantBoard extends Board {
         return _board.numOfSide(color);
     }
 
+    @Override
+    public boolean overfull(int S) {
+        return _board.overfull(S);
+    }
+
+    @Override
+    boolean critical(int n) {
+        return _board.critical(n);
+    }
+
+    @Override
+    int feature(int f, Side side) {
+        return _board.feature(f, side);
+    }
+
     @Override
     public boolean equals(Object obj) {
         return _board.equals(obj);
@@ -74,6 +119,11 @@ class ConstantBoard extends Board {
         return _board.hashCode();
     }
 
+    @Override
+    public String toString() {
+        return _board.toString();
+    }
+
     @Override
     void clear(int N) {
     }
@@ -90,6 +140,15 @@ class ConstantBoard extends Board {
     void addSpot(Side player, int n) {
     }
 
+    @Override
+    int makeMove(Side player, int n) {
+        return 0;
+    }
+
+    @Override
+    void unmakeMove(int token) {
+    }
+
     @Override
     void set(int r, int c, int num, Side player) {
     }
@@ -22,4 +22,84 @@ class Defaults {
      */
     static final int MAX_BOARD_SIZE = 10;
 
+    /**
+     * Default limit on the time an automated player spends choosing a
+     * move, in milliseconds.
+     */
+    static final long TIME_LIMIT = 1000;
+
+    /**
+     * Default limit on the number of positions an automated player
+     * searches in choosing a move (0 means no limit).
+     */
+    static final long NODE_LIMIT = 0;
+
+    /**
+     * Maximum depth of game-tree search by automated players.
+     */
+    static final int MAX_SEARCH_DEPTH = 64;
+
+    /**
+     * Base-2 logarithm of the number of entries in each automated
+     * player's transposition table (16 bytes per entry).
+     */
+    static final int TABLE_SIZE_LOG2 = 20;
+
+    /**
+     * Default number of threads each automated player uses to search.
+     */
+    static final int THREADS = 1;
+
+    /**
+     * Maximum number of threads an automated player may use to search.
+     */
+    static final int MAX_THREADS = 64;
+
+    /**
+     * Default limit on the number of playouts a Monte Carlo player makes
+     * in choosing a move (0 means no limit).
+     */
+    static final long PLAYOUT_LIMIT = 0;
+
+    /**
+     * Largest number of positions that the tablebase solver reads from a
+     * layer at a time, holds in runs of their successors on the heap, or
+     * keeps in a layer on the heap; the rest go to temporary files.
+     */
+    static final int SOLVER_LAYER_LIMIT = 1 << 22;
+
+    /**
+     * Number of moves the position database builder notes in memory
+     * before sorting them and writing them to a temporary file (16 bytes
+     * per move).
+     */
+    static final int POSITION_RUN_SIZE = 1 << 21;
+
+    /**
+     * Number of times a move must have been played from a position, as
+     * recorded in a position database, for an automated player to
+     * choose it from the database without searching.
+     */
+    static final int BOOK_MIN_VISITS = 16;
+
+    /**
+     * Default number of moves from the start of the game covered by a
+     * generated opening book.
+     */
+    static final int BOOK_PLIES = 4;
+
+    /**
+     * Maximum number of cascading moves followed by the quiescence
+     * search at the end of each line of an automated player's search
+     * (0 for no quiescence search).
+     */
+    static final int QUIESCENCE_DEPTH = 6;
+
+    /**
+     * Default debugging level (see --debug and --stats-level) at which
+     * automated players print statistics about the choice of each move
+     * (see SearchStats).
+     */
+    static final int SEARCH_STATS_LEVEL = 2;
+
 }
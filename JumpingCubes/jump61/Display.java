@@ -3,7 +3,8 @@ package jump61;
 import ucb.gui2.LayoutSpec;
 import ucb.gui2.TopLevel;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * The GUI controller for jump61.  To require minimal change to textual
@@ -22,10 +23,16 @@ class Display extends TopLevel implements View, CommandSource, Reporter {
      */
     static final long BOARD_UPDATE_INTERVAL = 50;
     /**
-     * Queue for commands going to the controlling Game.
+     * Queue for commands going to the controlling Game.  Unbounded, so
+     * that no command is lost while the Game is busy.
      */
-    private final ArrayBlockingQueue<String> _commandQueue =
-            new ArrayBlockingQueue<>(5);
+    private final BlockingQueue<String> _commandQueue =
+            new LinkedBlockingQueue<>();
+    /**
+     * Run before sending a command that should take effect at once,
+     * even if an automated player is choosing a move.
+     */
+    private Runnable _interrupt = () -> { };
     /**
      * The widget that displays the actual playing board.
      */
@@ -42,6 +49,8 @@ class Display extends TopLevel implements View, CommandSource, Reporter {
         addMenuButton("Game->New Game", this::newGame);
         addMenuButton("Switch Player->AI Red", this::redAI);
         addMenuButton("Switch Player->AI Blue", this::blueAI);
+        addMenuButton("Switch Player->MCTS Red", this::redMonteCarlo);
+        addMenuButton("Switch Player->MCTS Blue", this::blueMonteCarlo);
         addMenuButton("Switch Player->Human Red", this::redPerson);
         addMenuButton("Switch Player->Human Blue", this::bluePerson);
         addMenuButton("Select Size->2", this::resize);
@@ -58,36 +67,67 @@ class Display extends TopLevel implements View, CommandSource, Reporter {
         add(_boardWidget, new LayoutSpec("y", 1, "width", 2));
         display(true);
     }
+
+    /**
+     * Have HANDLER run (in the GUI thread) before each command that
+     * should interrupt an automated player choosing a move: starting a
+     * new game, switching players, or resizing the board.
+     */
+    void setInterruptHandler(Runnable handler) {
+        _interrupt = handler;
+    }
+
+    /**
+     * Send COMMAND to the Game, first interrupting any automated player
+     * that is choosing a move.
+     */
+    private void interrupt(String command) {
+        _interrupt.run();
+        _commandQueue.offer(command);
+    }
+
     /**
      * Response to "resize" button click.
      */
     void resize(String dummy) {
         String numberOnly = dummy.replaceAll("[^0-9]", "");
-        _commandQueue.offer("size " + numberOnly);
+        interrupt("size " + numberOnly);
     }
     /**
      * Response to "change player" button click.
      */
     void redAI(String dummy) {
-        _commandQueue.offer("auto red");
+        interrupt("auto red");
     }
     /**
      * Response to "change player" button click.
      */
     void blueAI(String dummy) {
-        _commandQueue.offer("auto blue");
+        interrupt("auto blue");
+    }
+    /**
+     * Response to "change player" button click.
+     */
+    void redMonteCarlo(String dummy) {
+        interrupt("uct red");
+    }
+    /**
+     * Response to "change player" button click.
+     */
+    void blueMonteCarlo(String dummy) {
+        interrupt("uct blue");
     }
     /**
      * Response to "change player" button click.
      */
     void redPerson(String dummy) {
-        _commandQueue.offer("manual red");
+        interrupt("manual red");
     }
     /**
      * Response to "change player" button click.
      */
     void bluePerson(String dummy) {
-        _commandQueue.offer("manual blue");
+        interrupt("manual blue");
     }
 
     /**
@@ -101,7 +141,7 @@ class Display extends TopLevel implements View, CommandSource, Reporter {
      * Response to "New Game" button click. 
      */
     void newGame(String dummy) {
-        _commandQueue.offer("new");
+        interrupt("new");
         _boardWidget.update(new Board(6));
     }
 
@@ -0,0 +1,398 @@
+package jump61;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static jump61.GameException.error;
+import static jump61.Side.*;
+import static jump61.Utils.debug;
+
+/**
+ * Fits the weights of the static evaluation (see EvalWeights) to the
+ * outcomes of recorded games by logistic regression.  The model is that
+ * Red wins from a position with probability 1 / (1 + exp(-v)), where v
+ * is the weighted sum of the differences between Red's and Blue's
+ * features (see Board.feature), and the weights chosen minimize the
+ * cross-entropy of the predictions over every position reached in every
+ * finished game.
+ * <p>
+ * Games are read in batches from the record files, and each batch is
+ * replayed on a pool of threads, each with its own Board.  Only the
+ * feature differences and the result are kept for each position, packed
+ * into a short array per batch, so millions of positions take little
+ * memory.  The fit is by Newton's method: each iteration sums the
+ * gradient and Hessian of the error over the batches in parallel, then
+ * solves a system with one equation per feature.  Finally the weights
+ * are scaled so that the largest is WEIGHT_SCALE in magnitude (the
+ * search cares only about their ratios) and rounded.
+ *
+ * @author Aniketh Prasad
+ */
+class EvalTuner {
+
+    /**
+     * Number of games replayed by one task.
+     */
+    private static final int BATCH_SIZE = 1024;
+    /**
+     * Number of shorts recorded for each position: the feature
+     * differences, then 1 if Red won and 0 if Blue did.
+     */
+    private static final int STRIDE = Board.NUM_FEATURES + 1;
+    /**
+     * Maximum number of Newton iterations.
+     */
+    private static final int MAX_ITERATIONS = 50;
+    /**
+     * The fit stops when no weight changes by more than this much in an
+     * iteration.
+     */
+    private static final double TOLERANCE = 1e-9;
+    /**
+     * Weight of the penalty on the squares of the weights, per position,
+     * which keeps the fit well defined when a feature never varies.
+     */
+    private static final double REGULARIZATION = 1e-6;
+    /**
+     * Magnitude of the largest weight after scaling.
+     */
+    static final int WEIGHT_SCALE = 1000;
+
+    /**
+     * A tuner that replays games and sums errors PARALLEL batches at a
+     * time.
+     */
+    EvalTuner(int parallel) {
+        if (parallel < 1) {
+            throw error("number of batches processed at once must be "
+                        + "positive");
+        }
+        _parallel = parallel;
+    }
+
+    /**
+     * Return the weights that best predict the outcomes of the finished
+     * games recorded in FILES (see GameRecordReader), throwing a
+     * GameException if there are none.  If the current thread is
+     * interrupted, abandons the tuning and throws an
+     * InterruptedIOException, leaving the thread's interrupt status set.
+     */
+    EvalWeights tune(List<File> files) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(_parallel);
+        try {
+            ArrayList<short[]> samples = extract(files, pool);
+            if (_numPositions == 0) {
+                throw error("no finished games to tune on");
+            }
+            double[] weights = fit(samples, pool);
+            double max = 0.0;
+            for (double w : weights) {
+                max = Math.max(max, Math.abs(w));
+            }
+            int[] result = new int[weights.length];
+            for (int f = 0; f < weights.length; f += 1) {
+                result[f] = max == 0.0 ? 0
+                    : (int) Math.round(weights[f] / max * WEIGHT_SCALE);
+            }
+            return new EvalWeights(result);
+        } catch (InterruptedException | ClosedByInterruptException excp) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("tuning interrupted");
+        } catch (ExecutionException excp) {
+            Throwable cause = excp.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw error("tuning failed: %s", cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Return the number of games used by the last tuning.
+     */
+    long numGames() {
+        return _numGames;
+    }
+
+    /**
+     * Return the number of positions used by the last tuning.
+     */
+    long numPositions() {
+        return _numPositions;
+    }
+
+    /**
+     * Return the mean cross-entropy, in nats, of the predictions of the
+     * weights found by the last tuning.
+     */
+    double logLoss() {
+        return _logLoss;
+    }
+
+    /**
+     * Return the mean squared difference between the results and the
+     * predictions of the weights found by the last tuning.
+     */
+    double meanSquaredError() {
+        return _meanSquaredError;
+    }
+
+    /**
+     * Return the samples for the positions of the finished games in
+     * FILES, one array per batch of games, replaying the batches on
+     * POOL.  At most 2 * _parallel batches are read but not yet
+     * replayed at any time.
+     */
+    private ArrayList<short[]> extract(List<File> files,
+                                       ExecutorService pool)
+        throws IOException, InterruptedException, ExecutionException {
+        ArrayList<short[]> samples = new ArrayList<>();
+        ArrayDeque<Future<short[]>> pending = new ArrayDeque<>();
+        _numGames = _numPositions = 0;
+        for (File file : files) {
+            try (GameRecordReader in = new GameRecordReader(file)) {
+                GameRecord[] batch = newBatch();
+                int n = 0;
+                boolean more = true;
+                while (more) {
+                    more = in.next(batch[n]);
+                    if (more && batch[n].winner() != null) {
+                        n += 1;
+                    }
+                    if (n == BATCH_SIZE || !more && n > 0) {
+                        GameRecord[] full = batch;
+                        int count = n;
+                        pending.add(pool.submit(() -> replay(full, count)));
+                        _numGames += n;
+                        batch = newBatch();
+                        n = 0;
+                    }
+                    while (pending.size() > 2 * _parallel
+                           || !more && !pending.isEmpty()) {
+                        short[] positions = pending.remove().get();
+                        samples.add(positions);
+                        _numPositions += positions.length / STRIDE;
+                    }
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Return an array of BATCH_SIZE empty GameRecords.
+     */
+    private static GameRecord[] newBatch() {
+        GameRecord[] batch = new GameRecord[BATCH_SIZE];
+        for (int i = 0; i < batch.length; i += 1) {
+            batch[i] = new GameRecord();
+        }
+        return batch;
+    }
+
+    /**
+     * Return the samples for the positions reached after each move but
+     * the last of the first N games in GAMES.  Throws IOException if a
+     * record holds an illegal move.
+     */
+    private static short[] replay(GameRecord[] games, int n)
+        throws IOException {
+        int total = 0;
+        for (int i = 0; i < n; i += 1) {
+            total += Math.max(0, games[i].numMoves() - 1);
+        }
+        short[] samples = new short[total * STRIDE];
+        Board board = new Board(Defaults.BOARD_SIZE);
+        int s = 0;
+        for (int i = 0; i < n; i += 1) {
+            GameRecord game = games[i];
+            short result = (short) (game.winner() == RED ? 1 : 0);
+            board.clear(game.size());
+            for (int k = 0; k < game.numMoves(); k += 1) {
+                int move = game.move(k);
+                Side player = board.whoseMove();
+                if (board.getWinner() != null
+                    || move >= board.size() * board.size()
+                    || !board.isLegal(player, move)) {
+                    throw new IOException("invalid move in game record");
+                }
+                board.addSpot(player, move);
+                if (k + 1 < game.numMoves()) {
+                    for (int f = 0; f < Board.NUM_FEATURES; f += 1) {
+                        samples[s + f] = (short) (board.feature(f, RED)
+                                                  - board.feature(f, BLUE));
+                    }
+                    samples[s + Board.NUM_FEATURES] = result;
+                    s += STRIDE;
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Return the weights, in units of the log-odds of a Red win, that
+     * minimize the regularized cross-entropy of the predictions for
+     * SAMPLES, summing over its arrays on POOL.  Sets _logLoss and
+     * _meanSquaredError.
+     */
+    private double[] fit(ArrayList<short[]> samples, ExecutorService pool)
+        throws InterruptedException, ExecutionException {
+        int F = Board.NUM_FEATURES;
+        double[] weights = new double[F];
+        double penalty = REGULARIZATION * Math.max(1, _numPositions);
+        for (int iter = 0; iter < MAX_ITERATIONS; iter += 1) {
+            double[] sums = sum(samples, weights, pool);
+            double[] gradient = new double[F];
+            double[][] hessian = new double[F][F];
+            for (int i = 0; i < F; i += 1) {
+                gradient[i] = sums[2 + i] + penalty * weights[i];
+                for (int j = 0; j < F; j += 1) {
+                    hessian[i][j] = sums[2 + F + i * F + j];
+                }
+                hessian[i][i] += penalty;
+            }
+            double[] step = solve(hessian, gradient);
+            double change = 0.0;
+            for (int i = 0; i < F; i += 1) {
+                weights[i] -= step[i];
+                change = Math.max(change, Math.abs(step[i]));
+            }
+            debug(1, "tuning iteration %d: log loss %.6f", iter,
+                        sums[0] / Math.max(1, _numPositions));
+            if (change < TOLERANCE) {
+                break;
+            }
+        }
+        double[] sums = sum(samples, weights, pool);
+        _logLoss = sums[0] / Math.max(1, _numPositions);
+        _meanSquaredError = sums[1] / Math.max(1, _numPositions);
+        return weights;
+    }
+
+    /**
+     * Return the sums over all positions in SAMPLES, for the predictions
+     * of WEIGHTS, of the cross-entropy (element 0), the squared error
+     * (element 1), the gradient of the cross-entropy (the next
+     * NUM_FEATURES elements), and its Hessian (the rest, by rows).  The
+     * arrays of SAMPLES are summed in parallel on POOL.
+     */
+    private static double[] sum(ArrayList<short[]> samples, double[] weights,
+                                ExecutorService pool)
+        throws InterruptedException, ExecutionException {
+        int F = Board.NUM_FEATURES;
+        ArrayList<Future<double[]>> parts = new ArrayList<>();
+        for (short[] batch : samples) {
+            parts.add(pool.submit(() -> sum(batch, weights)));
+        }
+        double[] total = new double[2 + F + F * F];
+        for (Future<double[]> part : parts) {
+            double[] sums = part.get();
+            for (int i = 0; i < total.length; i += 1) {
+                total[i] += sums[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Return the sums described for sum(SAMPLES, WEIGHTS, POOL) over the
+     * positions in BATCH only.
+     */
+    private static double[] sum(short[] batch, double[] weights) {
+        int F = Board.NUM_FEATURES;
+        double[] sums = new double[2 + F + F * F];
+        for (int s = 0; s < batch.length; s += STRIDE) {
+            double v = 0.0;
+            for (int f = 0; f < F; f += 1) {
+                v += weights[f] * batch[s + f];
+            }
+            double p = 1.0 / (1.0 + Math.exp(-v));
+            int y = batch[s + F];
+            double error = p - y;
+            sums[0] += y == 1 ? softplus(-v) : softplus(v);
+            sums[1] += error * error;
+            double curvature = p * (1.0 - p);
+            for (int i = 0; i < F; i += 1) {
+                double xi = batch[s + i];
+                sums[2 + i] += error * xi;
+                for (int j = 0; j < F; j += 1) {
+                    sums[2 + F + i * F + j] += curvature * xi * batch[s + j];
+                }
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Return log(1 + exp(X)), computed without overflow.
+     */
+    private static double softplus(double x) {
+        return x > 0 ? x + Math.log1p(Math.exp(-x)) : Math.log1p(Math.exp(x));
+    }
+
+    /**
+     * Return the solution X of A X = B, by Gaussian elimination with
+     * partial pivoting.  A and B are overwritten.  A must be
+     * nonsingular.
+     */
+    private static double[] solve(double[][] a, double[] b) {
+        int n = b.length;
+        for (int c = 0; c < n; c += 1) {
+            int pivot = c;
+            for (int r = c + 1; r < n; r += 1) {
+                if (Math.abs(a[r][c]) > Math.abs(a[pivot][c])) {
+                    pivot = r;
+                }
+            }
+            double[] row = a[c];
+            a[c] = a[pivot];
+            a[pivot] = row;
+            double t = b[c];
+            b[c] = b[pivot];
+            b[pivot] = t;
+            for (int r = c + 1; r < n; r += 1) {
+                double factor = a[r][c] / a[c][c];
+                for (int k = c; k < n; k += 1) {
+                    a[r][k] -= factor * a[c][k];
+                }
+                b[r] -= factor * b[c];
+            }
+        }
+        double[] x = new double[n];
+        for (int r = n - 1; r >= 0; r -= 1) {
+            double v = b[r];
+            for (int k = r + 1; k < n; k += 1) {
+                v -= a[r][k] * x[k];
+            }
+            x[r] = v / a[r][r];
+        }
+        return x;
+    }
+
+    /**
+     * Number of batches processed at once.
+     */
+    private final int _parallel;
+    /**
+     * Numbers of games and positions used by the last tuning.
+     */
+    private long _numGames, _numPositions;
+    /**
+     * Mean cross-entropy and squared error of the last tuning's
+     * predictions.
+     */
+    private double _logLoss, _meanSquaredError;
+
+}
@@ -0,0 +1,98 @@
+package jump61;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of EvalTuner and of reading and writing EvalWeights.
+ *
+ * @author Aniketh Prasad
+ */
+public class EvalTunerTest {
+
+    /**
+     * Return a temporary file holding GAMES records of random games
+     * played using RANDOM.  One game in ten is unfinished.  Sets
+     * COUNTS[0] to the number of finished games and COUNTS[1] to the
+     * number of positions in them that a tuner uses (all but the last).
+     */
+    private static File records(int games, Random random, long[] counts)
+        throws IOException {
+        File records = File.createTempFile("jump61", ".rec");
+        records.deleteOnExit();
+        try (GameRecordWriter out = new GameRecordWriter(records)) {
+            counts[0] = counts[1] = 0;
+            for (int k = 0; k < games; k += 1) {
+                GameRecord game =
+                    GameRecordTest.play(3 + k % 3,
+                                        k % 10 == 0 ? 5 : Integer.MAX_VALUE,
+                                        random);
+                if (game.winner() != null) {
+                    counts[0] += 1;
+                    counts[1] += game.numMoves() - 1;
+                }
+                out.write(game);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void testTune() throws IOException {
+        long[] counts = new long[2];
+        File records = records(1500, new Random(61), counts);
+        EvalTuner tuner = new EvalTuner(2);
+        EvalWeights weights = tuner.tune(Arrays.asList(records));
+        assertEquals(counts[0], tuner.numGames());
+        assertEquals(counts[1], tuner.numPositions());
+        assertTrue("owning squares should help",
+                   weights.weight(Board.OWNED) > 0);
+        assertTrue(tuner.logLoss() < Math.log(2));
+
+        File file = File.createTempFile("jump61", ".weights");
+        file.deleteOnExit();
+        weights.write(file, "test");
+        assertEquals(weights.toString(), EvalWeights.read(file).toString());
+    }
+
+    @Test
+    public void testNoFinishedGames() throws IOException {
+        File records = File.createTempFile("jump61", ".rec");
+        records.deleteOnExit();
+        Random random = new Random(61);
+        try (GameRecordWriter out = new GameRecordWriter(records)) {
+            for (int k = 0; k < 10; k += 1) {
+                out.write(GameRecordTest.play(3, 2, random));
+            }
+        }
+        try {
+            new EvalTuner(2).tune(Arrays.asList(records));
+            fail("tuned without finished games");
+        } catch (GameException excp) {
+            assertEquals("no finished games to tune on", excp.getMessage());
+        }
+    }
+
+    @Test
+    public void testInterrupted() throws IOException {
+        File records = records(100, new Random(61), new long[2]);
+        EvalTuner tuner = new EvalTuner(2);
+        Thread.currentThread().interrupt();
+        try {
+            tuner.tune(Arrays.asList(records));
+            fail("tuning was not interrupted");
+        } catch (InterruptedIOException excp) {
+            assertTrue("interrupt status lost", Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+}
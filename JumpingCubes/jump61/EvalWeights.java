@@ -0,0 +1,164 @@
+package jump61;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import static jump61.GameException.error;
+import static jump61.Side.*;
+
+/**
+ * The weights of the terms of an automated player's static evaluation.
+ * There is one term for each of the features that a Board keeps up to
+ * date for each side (see Board.feature); its contribution to the value
+ * of a position is its weight times the difference between Red's and
+ * Blue's values of the feature.  Since the features are maintained
+ * incrementally, a position is evaluated in constant time.
+ * <p>
+ * Weights may be written to and read from a text file with one line
+ * per term, giving its name (see NAMES) and its weight.  Blank lines
+ * and lines starting with '#' are ignored, as are terms not mentioned,
+ * which keep their default weights.
+ *
+ * @author Aniketh Prasad
+ */
+class EvalWeights {
+
+    /**
+     * Names of the terms, indexed by Board feature number.
+     */
+    static final String[] NAMES = {
+        "owned", "spots", "critical", "vulnerable", "corners", "edges",
+    };
+    /**
+     * Default weights of the terms, indexed by Board feature number.
+     * The owned term dominates, so that the evaluation refines the
+     * difference in the numbers of squares owned.
+     */
+    static final int[] DEFAULTS = { 100, 0, 10, -10, 20, 10 };
+    /**
+     * Largest magnitude of a weight.  Bounding the weights keeps all
+     * values of the evaluation well below AI.WINNING_VALUE.
+     */
+    static final int MAX_WEIGHT = 10000;
+
+    /**
+     * The default weights.
+     */
+    EvalWeights() {
+        this(DEFAULTS);
+    }
+
+    /**
+     * The weights WEIGHTS, indexed by Board feature number.
+     */
+    EvalWeights(int[] weights) {
+        if (weights.length != Board.NUM_FEATURES) {
+            throw error("need %d weights", Board.NUM_FEATURES);
+        }
+        for (int w : weights) {
+            checkWeight(w);
+        }
+        _weights = weights.clone();
+    }
+
+    /**
+     * Return the weight of the term for Board feature F.
+     */
+    int weight(int f) {
+        return _weights[f];
+    }
+
+    /**
+     * Return a heuristic value of the position on BOARD for Red, as the
+     * weighted sum of the differences between Red's and Blue's features.
+     * Does not take account of whether the game is over.
+     */
+    int evaluate(Board board) {
+        int value = 0;
+        for (int f = 0; f < _weights.length; f += 1) {
+            value += _weights[f]
+                * (board.feature(f, RED) - board.feature(f, BLUE));
+        }
+        return value;
+    }
+
+    /**
+     * Return the weights in FILE, which is in the format described
+     * above.  Throws IOException if FILE cannot be read, and a
+     * GameException if it is malformed.
+     */
+    static EvalWeights read(File file) throws IOException {
+        int[] weights = DEFAULTS.clone();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                int f = Arrays.asList(NAMES).indexOf(parts[0]);
+                if (parts.length != 2 || f < 0) {
+                    throw error("bad weight in %s: %s", file, line);
+                }
+                try {
+                    weights[f] = Integer.parseInt(parts[1]);
+                } catch (NumberFormatException excp) {
+                    throw error("bad weight in %s: %s", file, line);
+                }
+            }
+        }
+        return new EvalWeights(weights);
+    }
+
+    /**
+     * Write my weights to FILE in the format described above, with
+     * COMMENT (if not null) as a leading comment line.
+     */
+    void write(File file, String comment) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            if (comment != null) {
+                out.printf("# %s%n", comment);
+            }
+            for (int f = 0; f < _weights.length; f += 1) {
+                out.printf("%s %d%n", NAMES[f], _weights[f]);
+            }
+            if (out.checkError()) {
+                throw new IOException("could not write " + file);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int f = 0; f < _weights.length; f += 1) {
+            if (f > 0) {
+                result.append(' ');
+            }
+            result.append(NAMES[f]).append('=').append(_weights[f]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Throw a GameException unless W is a valid weight.
+     */
+    private static void checkWeight(int w) {
+        if (Math.abs(w) > MAX_WEIGHT) {
+            throw error("weights must be between %d and %d",
+                        -MAX_WEIGHT, MAX_WEIGHT);
+        }
+    }
+
+    /**
+     * The weights, indexed by Board feature number.
+     */
+    private final int[] _weights;
+
+}
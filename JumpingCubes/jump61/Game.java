@@ -1,5 +1,14 @@
 package jump61;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
 import static jump61.Side.*;
 import static jump61.GameException.error;
 import static jump61.Utils.*;
@@ -14,9 +23,10 @@ class Game {
 
     /** A list of all commands. */
     private static final String[] COMMAND_NAMES = {
-        "auto", "board", "clear", "dump", "help", "manual",
-        "new", "q", "quiet", "quit",
-        "seed", "set", "size", "start", "verbose",
+        "auto", "board", "clear", "dump", "help", "lookup", "manual", "new",
+        "perft", "playouts", "ponder", "positions", "q", "quiet", "quit",
+        "record", "seed", "set", "size", "start", "threads", "time", "uct",
+        "verbose",
     };
 
     /** A new Game that takes command/move input from INP, logs
@@ -30,6 +40,12 @@ class Game {
         _reporter = reporter;
         _logging = logging;
         _seed = (long) (Math.random() * Long.MAX_VALUE);
+        _timeLimit = Defaults.TIME_LIMIT;
+        _nodeLimit = Defaults.NODE_LIMIT;
+        _threads = Defaults.THREADS;
+        _playoutLimit = Defaults.PLAYOUT_LIMIT;
+        _statsLevel = Defaults.SEARCH_STATS_LEVEL;
+        _weights = new EvalWeights();
 
         _board = new Board(Defaults.BOARD_SIZE);
         _readonlyBoard = new ConstantBoard(_board);
@@ -42,6 +58,186 @@ class Game {
         return _readonlyBoard;
     }
 
+    /** Return the approximate limit on the time automated players may
+     *  spend choosing a move, in milliseconds. */
+    long timeLimit() {
+        return _timeLimit;
+    }
+
+    /** Return the limit on the number of positions automated players
+     *  may search in choosing a move, or 0 if there is no limit. */
+    long nodeLimit() {
+        return _nodeLimit;
+    }
+
+    /** Limit automated players to about MSEC milliseconds per move.
+     *  Requires MSEC > 0. */
+    void setTimeLimit(long msec) {
+        if (msec <= 0) {
+            throw error("time limit must be positive");
+        }
+        _timeLimit = msec;
+    }
+
+    /** Limit automated players to searching NODES positions per move,
+     *  or lift the limit if NODES is 0.  Requires NODES >= 0. */
+    void setNodeLimit(long nodes) {
+        if (nodes < 0) {
+            throw error("position limit must not be negative");
+        }
+        _nodeLimit = nodes;
+    }
+
+    /** Return the limit on the number of playouts Monte Carlo players
+     *  may make in choosing a move, or 0 if there is no limit. */
+    long playoutLimit() {
+        return _playoutLimit;
+    }
+
+    /** Limit Monte Carlo players to PLAYOUTS playouts per move, or lift
+     *  the limit if PLAYOUTS is 0.  Requires PLAYOUTS >= 0. */
+    void setPlayoutLimit(long playouts) {
+        if (playouts < 0) {
+            throw error("playout limit must not be negative");
+        }
+        _playoutLimit = playouts;
+    }
+
+    /** Return the weights of the terms of automated players' static
+     *  evaluations. */
+    EvalWeights weights() {
+        return _weights;
+    }
+
+    /** Have automated players weight the terms of their static
+     *  evaluations by WEIGHTS. */
+    void setWeights(EvalWeights weights) {
+        _weights = weights;
+    }
+
+    /** Return true iff automated players ponder: search on their
+     *  opponents' time (see AI.moveMade). */
+    boolean ponder() {
+        return _ponder;
+    }
+
+    /** Have automated players ponder iff PONDER. */
+    void setPonder(boolean ponder) {
+        _ponder = ponder;
+    }
+
+    /** Return the debugging level (see Utils.debug) at which automated
+     *  players print statistics about the choice of each move (see
+     *  SearchStats), or 0 if they never do. */
+    int statsLevel() {
+        return _statsLevel;
+    }
+
+    /** Have automated players print statistics about the choice of each
+     *  move at debugging level LEVEL, or never if LEVEL is 0.  Requires
+     *  LEVEL >= 0. */
+    void setStatsLevel(int level) {
+        if (level < 0) {
+            throw error("statistics level must not be negative");
+        }
+        _statsLevel = level;
+    }
+
+    /** Return the number of threads automated players use to search. */
+    int threads() {
+        return _threads;
+    }
+
+    /** Have automated players search in N threads.  Requires
+     *  1 <= N <= Defaults.MAX_THREADS. */
+    void setThreads(int n) {
+        if (n < 1 || n > Defaults.MAX_THREADS) {
+            throw error("number of threads must be between 1 and %d",
+                        Defaults.MAX_THREADS);
+        }
+        _threads = n;
+    }
+
+    /** Have automated players consult the tablebases (see Tablebase) in
+     *  directory DIR, or none if DIR is null. */
+    void setTablebaseDirectory(File dir) {
+        _tablebaseDir = dir;
+        _tablebases.clear();
+    }
+
+    /** Return the directory holding tablebases for automated players,
+     *  or null if they use none. */
+    File tablebaseDirectory() {
+        return _tablebaseDir;
+    }
+
+    /** Return the tablebase for N x N boards, or null if there is none.
+     *  Tablebases are opened on first use, and a missing or unreadable
+     *  one is reported once at debugging level 1. */
+    Tablebase tablebase(int N) {
+        if (_tablebaseDir == null) {
+            return null;
+        }
+        if (!_tablebases.containsKey(N)) {
+            File file = new File(_tablebaseDir, Tablebase.fileName(N));
+            Tablebase table;
+            try {
+                table = new Tablebase(file);
+            } catch (IOException excp) {
+                debug(1, "no tablebase: %s", excp.getMessage());
+                table = null;
+            }
+            _tablebases.put(N, table);
+        }
+        return _tablebases.get(N);
+    }
+
+    /** Have automated players consult the opening books (see
+     *  OpeningBook) in directory DIR, or none if DIR is null. */
+    void setBookDirectory(File dir) {
+        _bookDir = dir;
+        _books.clear();
+    }
+
+    /** Return the directory holding opening books for automated players,
+     *  or null if they use none. */
+    File bookDirectory() {
+        return _bookDir;
+    }
+
+    /** Return the opening book for N x N boards, or null if there is
+     *  none.  Books are opened on first use, and a missing or unreadable
+     *  one is reported once at debugging level 1. */
+    OpeningBook openingBook(int N) {
+        if (_bookDir == null) {
+            return null;
+        }
+        if (!_books.containsKey(N)) {
+            File file = new File(_bookDir, OpeningBook.fileName(N));
+            OpeningBook book;
+            try {
+                book = new OpeningBook(file);
+            } catch (IOException excp) {
+                debug(1, "no opening book: %s", excp.getMessage());
+                book = null;
+            }
+            _books.put(N, book);
+        }
+        return _books.get(N);
+    }
+
+    /** Have automated players consult position database DB as an
+     *  opening book, or none if DB is null. */
+    void setPositionDatabase(PositionDatabase db) {
+        _positionDatabase = db;
+    }
+
+    /** Return the position database automated players consult, or
+     *  null if there is none. */
+    PositionDatabase positionDatabase() {
+        return _positionDatabase;
+    }
+
     /** Return true iff the current game is not over. */
     boolean gameInProgress() {
         return _board.getWinner() == null;
@@ -65,7 +261,10 @@ class Game {
             if (_board.getWinner() == null) {
                 winnerAnnounced = false;
                 try {
-                    executeCommand(getPlayer(_board.whoseMove()).getMove());
+                    Player player = getPlayer(_board.whoseMove());
+                    String move =
+                        player.isAutomated() ? think(player) : player.getMove();
+                    executeCommand(move == null ? getCommand() : move);
                 } catch (GameException e) {
                     reportError(e.getMessage());
                 }
@@ -77,9 +276,68 @@ class Game {
                 executeCommand(getCommand());
             }
         }
+        setRecordFile(null);
         return _exit;
     }
 
+    /** Return the move chosen by automated PLAYER (see
+     *  Player.chooseMove), after reporting it.  The move is chosen in a
+     *  background thread, so that stopThinking may abandon it; in that
+     *  case, nothing is reported, and returns null once the thread has
+     *  stopped. */
+    private String think(Player player) {
+        if (_thinker == null) {
+            _thinker = Executors.newSingleThreadExecutor((r) -> {
+                Thread thread = new Thread(r, "jump61-think");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        FutureTask<Integer> move = new FutureTask<>(player::chooseMove);
+        _thinking = move;
+        _thinker.execute(move);
+        try {
+            int n = move.get();
+            reportMove(_board.row(n), _board.col(n));
+            return _board.moveString(n);
+        } catch (CancellationException excp) {
+            waitForThinker();
+            return null;
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IllegalStateException(excp.getCause());
+        } catch (InterruptedException excp) {
+            move.cancel(true);
+            waitForThinker();
+            return null;
+        } finally {
+            _thinking = null;
+        }
+    }
+
+    /** Wait until the thread used by think has finished its current
+     *  task, if any. */
+    private void waitForThinker() {
+        try {
+            _thinker.submit(() -> { }).get();
+        } catch (InterruptedException | ExecutionException excp) {
+            return;
+        }
+    }
+
+    /** Abandon the move an automated player is choosing, if any, so that
+     *  the next command is executed promptly.  The player stops searching
+     *  as soon as it can, and its move is discarded.  May be called from
+     *  any thread. */
+    void stopThinking() {
+        FutureTask<Integer> move = _thinking;
+        if (move != null) {
+            move.cancel(true);
+        }
+    }
+
     /** Return a suggested prompt for command input. */
     private String prompt() {
         if (gameInProgress()) {
@@ -102,22 +360,89 @@ class Game {
     /** Add a spot to R C, if legal to do so. */
     void makeMove(int r, int c) {
         System.out.println(_board.whoseMove() + " " + r + " " + c);
-        assert _board.isLegal(_board.whoseMove(), r, c);
-        _board.addSpot(_board.whoseMove(), r, c);
-        if (_verbose) {
-            printBoard();
-        }
+        makeMove(_board.sqNum(r, c));
     }
 
     /** Add a spot to square #N, if legal to do so. */
     void makeMove(int n) {
         assert _board.isLegal(_board.whoseMove(), n);
-        _board.addSpot(_board.whoseMove(), n);
+        recordMove(n);
+        Side player = _board.whoseMove();
+        _board.addSpot(player, n);
+        if (_board.getWinner() != null) {
+            endRecord();
+        }
+        for (Player p : _players) {
+            if (p != null) {
+                p.moveMade(player, n);
+            }
+        }
         if (_verbose) {
             printBoard();
         }
     }
 
+    /** Record the games played from now on in a new file named FILE
+     *  (see GameRecordWriter), or stop recording if FILE is null.  Only
+     *  games played from the initial position, without using 'set', are
+     *  recorded, each when it is won. */
+    void setRecordFile(String file) {
+        abandonRecord();
+        if (_recorder != null) {
+            try {
+                _recorder.close();
+            } catch (IOException excp) {
+                reportError("could not finish game records: %s",
+                            excp.getMessage());
+            }
+            _recorder = null;
+        }
+        if (file != null) {
+            try {
+                _recorder = new GameRecordWriter(new File(file));
+            } catch (IOException excp) {
+                throw error("could not open %s", file);
+            }
+        }
+    }
+
+    /** Add a move to square #N to the record of the current game, if it
+     *  is being recorded, starting a new record if this is the first
+     *  move from the initial position. */
+    private void recordMove(int n) {
+        if (_recorder == null) {
+            return;
+        }
+        if (!_recordingGame) {
+            int N = _board.size();
+            if (_board.numOfSide(WHITE) != N * N) {
+                return;
+            }
+            _record.clear(N, _seeds[RED.ordinal()], _seeds[BLUE.ordinal()]);
+            _recordingGame = true;
+        }
+        _record.add(n);
+    }
+
+    /** Write the record of the game just won, if it was being recorded. */
+    private void endRecord() {
+        if (_recordingGame) {
+            _recordingGame = false;
+            _record.setWinner(_board.getWinner());
+            try {
+                _recorder.write(_record);
+            } catch (IOException excp) {
+                reportError("could not record game: %s", excp.getMessage());
+            }
+        }
+    }
+
+    /** Discard the record of the current game, which has been abandoned
+     *  or edited. */
+    private void abandonRecord() {
+        _recordingGame = false;
+    }
+
     /** Return the side denoted by COLOR (which must be lower case).  */
     Side toSide(String color) {
         switch (color) {
@@ -149,6 +474,15 @@ class Game {
     /** Make the player of COLOR an AI for subsequent moves. */
     private void setAuto(Side color) {
         setPlayer(color, new AI(this, color, _seed));
+        _seeds[color.ordinal()] = _seed;
+        _seed += 1;
+    }
+
+    /** Make the player of COLOR an automated player using Monte Carlo
+     *  tree search for subsequent moves. */
+    private void setMonteCarlo(Side color) {
+        setPlayer(color, new MonteCarloPlayer(this, color, _seed));
+        _seeds[color.ordinal()] = _seed;
         _seed += 1;
     }
 
@@ -156,6 +490,7 @@ class Game {
      *  subsequent moves. */
     private void setManual(Side color) {
         setPlayer(color, new HumanPlayer(this, color));
+        _seeds[color.ordinal()] = 0;
     }
 
     /** Return the Player playing COLOR. */
@@ -165,14 +500,67 @@ class Game {
 
     /** Set getPlayer(COLOR) to PLAYER. */
     private void setPlayer(Side color, Player player) {
+        if (getPlayer(color) != null) {
+            getPlayer(color).retire();
+        }
         _players[color.ordinal()] = player;
     }
 
     /** Clear the board to its initial state. */
     void clear() {
+        abandonRecord();
         _board.clear(_board.size());
     }
 
+    /** Print the number of move sequences of length DEPTH from the
+     *  current position, for each first move and in total, with the time
+     *  taken (see Perft).  Requires DEPTH >= 1. */
+    private void perft(int depth) {
+        if (depth < 1) {
+            throw error("perft depth must be positive");
+        }
+        Perft perft = new Perft(_board, depth, _threads);
+        perft.run();
+        for (int n = 0; n < _board.size() * _board.size(); n += 1) {
+            if (perft.count(n) > 0) {
+                _reporter.msg("%d %d: %d", _board.row(n), _board.col(n),
+                              perft.count(n));
+            }
+        }
+        double seconds = perft.nanos() / 1e9;
+        _reporter.msg("Nodes: %d  Time: %.3f s  Nodes/s: %.0f",
+                      perft.total(), seconds, perft.total() / seconds);
+    }
+
+    /** Print the statistics in the position database for the current
+     *  position: the number of games through it, the fraction won by
+     *  each side, and the same for each move played from it. */
+    private void lookup() {
+        if (_positionDatabase == null) {
+            throw error("no position database");
+        }
+        PositionDatabase.Stats stats = _positionDatabase.lookup(_board);
+        if (stats == null) {
+            _reporter.msg("Position not in database.");
+            return;
+        }
+        _reporter.msg("Games: %d  Red won: %.1f%%  Blue won: %.1f%%",
+                      stats.visits(), percent(stats.wins(RED), stats.visits()),
+                      percent(stats.wins(BLUE), stats.visits()));
+        for (int k = 0; k < stats.numMoves(); k += 1) {
+            int n = stats.move(k);
+            _reporter.msg("%d %d: %d  Red won: %.1f%%  Blue won: %.1f%%",
+                          _board.row(n), _board.col(n), stats.visits(k),
+                          percent(stats.wins(k, RED), stats.visits(k)),
+                          percent(stats.wins(k, BLUE), stats.visits(k)));
+        }
+    }
+
+    /** Return 100 * PART / WHOLE. */
+    private static double percent(long part, long whole) {
+        return 100.0 * part / whole;
+    }
+
     /** Print the current board using standard board-dump format. */
     private void dump() {
         _reporter.msg(_board.toString());
@@ -200,6 +588,7 @@ class Game {
     private void setSpots(int r, int c, int spots, String color) {
         if (_board.exists(r, c) && spots >= 0
             && spots <= _board.neighbors(r, c)) {
+            abandonRecord();
             _board.set(r, c, spots, toSide(color));
         } else {
             throw error("invalid request to put %d spots on square %d %d",
@@ -209,11 +598,12 @@ class Game {
 
     /** Stop any current game and set the board to an empty N x N board
      *  with numMoves() == 0.  Requires 2 <= N <= 10. */
-    private void setSize(int n) {
+    void setSize(int n) {
         log("size %d", n);
         if (n < 2 || n > 10) {
             throw error("size must be between 2 and 10");
         }
+        abandonRecord();
         _board.clear(n);
     }
 
@@ -269,18 +659,40 @@ class Game {
             case "help":
                 help();
                 break;
+            case "lookup":
+                lookup();
+                break;
             case "manual":
                 setManual(toSide(parts[1]));
                 break;
             case "new":
                 clear();
                 break;
+            case "perft":
+                perft(toInt(parts[1]));
+                break;
+            case "playouts":
+                setPlayoutLimit(toLong(parts[1]));
+                break;
+            case "ponder":
+                if (!parts[1].equals("on") && !parts[1].equals("off")) {
+                    throw error("usage: ponder on|off");
+                }
+                setPonder(parts[1].equals("on"));
+                break;
+            case "positions":
+                setNodeLimit(toLong(parts[1]));
+                break;
             case "quiet":
                 _verbose = false;
                 break;
             case "quit": case "q":
                 _exit = 0;
                 break;
+            case "record":
+                String[] args = cmnd.trim().split("\\s+", 2);
+                setRecordFile(parts[1].equals("off") ? null : args[1]);
+                break;
             case "seed":
                 setSeed(toLong(parts[1]));
                 break;
@@ -291,6 +703,15 @@ class Game {
             case "size":
                 setSize(toInt(parts[1]));
                 break;
+            case "threads":
+                setThreads(toInt(parts[1]));
+                break;
+            case "time":
+                setTimeLimit(toLong(parts[1]));
+                break;
+            case "uct":
+                setMonteCarlo(toSide(parts[1]));
+                break;
             case "verbose":
                 _verbose = true;
                 break;
@@ -347,11 +768,57 @@ class Game {
      *  AI to which it is supplied.
      */
     private long _seed;
+    /** Approximate limit on the time automated players may spend on a
+     *  move, in milliseconds. */
+    private long _timeLimit;
+    /** Limit on the positions automated players may search per move, or
+     *  0 for no limit. */
+    private long _nodeLimit;
+    /** Number of threads automated players use to search. */
+    private int _threads;
+    /** Limit on the playouts Monte Carlo players may make per move, or
+     *  0 for no limit. */
+    private long _playoutLimit;
+    /** Weights of the terms of automated players' static evaluations. */
+    private EvalWeights _weights;
+    /** True iff automated players ponder. */
+    private boolean _ponder;
+    /** Debugging level at which automated players print statistics about
+     *  each move, or 0 for never. */
+    private int _statsLevel;
+    /** Directory holding tablebases for automated players, or null. */
+    private File _tablebaseDir;
+    /** Tablebases opened so far, indexed by board size (null for those
+     *  that could not be opened). */
+    private final HashMap<Integer, Tablebase> _tablebases = new HashMap<>();
+    /** Directory holding opening books for automated players, or null. */
+    private File _bookDir;
+    /** Opening books opened so far, indexed by board size (null for those
+     *  that could not be opened). */
+    private final HashMap<Integer, OpeningBook> _books = new HashMap<>();
     /** When set to a non-negative value, indicates that play should terminate
      *  at the earliest possible point, returning _exit.  When negative,
      *  indicates that the session is not over. */
     private int _exit;
 
+    /** Position database consulted by automated players, or null. */
+    private PositionDatabase _positionDatabase;
+    /** Writer of game records, or null if games are not recorded. */
+    private GameRecordWriter _recorder;
+    /** The record of the current game. */
+    private final GameRecord _record = new GameRecord();
+    /** True iff the current game is being recorded in _record. */
+    private boolean _recordingGame;
+    /** Random seeds of the current players, indexed by color (0 for
+     *  players that do not use one). */
+    private final long[] _seeds = new long[Side.values().length];
+
+    /** Runs the moves of automated players (see think), or null if none
+     *  has yet been needed. */
+    private ExecutorService _thinker;
+    /** The move an automated player is choosing, or null. */
+    private volatile FutureTask<Integer> _thinking;
+
     /** Current players, indexed by color (RED, BLUE). */
     private final Player[] _players = new Player[Side.values().length];
 
@@ -0,0 +1,211 @@
+package jump61;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The record of one game played from the initial position: the board
+ * size, the random seeds of the two players, the winner, and the moves
+ * (as square numbers).  Records are kept in binary files by
+ * GameRecordWriter and read back by GameRecordReader.  In a file, a
+ * record is
+ * <pre>
+ *     size  redSeed  blueSeed  winner  numMoves  move ...
+ * </pre>
+ * where winner is a single byte holding the ordinal of the winning Side
+ * (WHITE for a game not finished), and every other field is an unsigned
+ * variable-length integer: seven bits per byte, least significant first,
+ * with the high bit of each byte but the last set.  Moves, being less
+ * than 128, take one byte each.
+ *
+ * @author Aniketh Prasad
+ */
+class GameRecord {
+
+    /**
+     * Start a new record of a game on a SIZE x SIZE board between a red
+     * player with random seed REDSEED and a blue player with seed
+     * BLUESEED (0 for players who do not use one), with no moves.
+     */
+    void clear(int size, long redSeed, long blueSeed) {
+        _size = size;
+        _redSeed = redSeed;
+        _blueSeed = blueSeed;
+        _winner = null;
+        _numMoves = 0;
+    }
+
+    /**
+     * Return the size of the board played on.
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Return the random seed of the player of COLOR (RED or BLUE).
+     */
+    long seed(Side color) {
+        return color == Side.RED ? _redSeed : _blueSeed;
+    }
+
+    /**
+     * Return the winner, or null if the game was not finished.
+     */
+    Side winner() {
+        return _winner;
+    }
+
+    /**
+     * Record that WINNER won the game.
+     */
+    void setWinner(Side winner) {
+        _winner = winner;
+    }
+
+    /**
+     * Return the number of moves.
+     */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /**
+     * Return move #K (numbering from 0), as a square number.
+     */
+    int move(int k) {
+        return _moves[k];
+    }
+
+    /**
+     * Add a move to square #N.
+     */
+    void add(int n) {
+        if (_numMoves == _moves.length) {
+            _moves = Arrays.copyOf(_moves, 2 * _moves.length);
+        }
+        _moves[_numMoves] = n;
+        _numMoves += 1;
+    }
+
+    /**
+     * Set BOARD to the position after the first K moves.  Throws
+     * IllegalArgumentException if a move is illegal (the record is
+     * damaged).
+     */
+    void replay(Board board, int k) {
+        board.clear(_size);
+        for (int i = 0; i < k; i += 1) {
+            Side player = board.whoseMove();
+            int n = _moves[i];
+            if (n < 0 || n >= _size * _size || board.getWinner() != null
+                || !board.isLegal(player, n)) {
+                throw new IllegalArgumentException("invalid move in record");
+            }
+            board.addSpot(player, n);
+        }
+    }
+
+    /**
+     * Set BOARD to the final position.  Throws IllegalArgumentException
+     * if the record is damaged.
+     */
+    void replay(Board board) {
+        replay(board, _numMoves);
+    }
+
+    /**
+     * Write me to OUT in the format described in the class comment.
+     */
+    void write(OutputStream out) throws IOException {
+        writeVar(out, _size);
+        writeVar(out, _redSeed);
+        writeVar(out, _blueSeed);
+        out.write(_winner == null ? Side.WHITE.ordinal() : _winner.ordinal());
+        writeVar(out, _numMoves);
+        for (int i = 0; i < _numMoves; i += 1) {
+            writeVar(out, _moves[i]);
+        }
+    }
+
+    /**
+     * Set me to the record at the current position of IN, and advance
+     * past it.  Throws BufferUnderflowException if IN holds only part of
+     * the record (leaving IN's position undefined), and IOException if
+     * the record is invalid.
+     */
+    void read(ByteBuffer in) throws IOException {
+        long size = readVar(in);
+        _redSeed = readVar(in);
+        _blueSeed = readVar(in);
+        int winner = in.get();
+        if (winner < 0 || winner >= Side.values().length
+            || size < 2 || size > Defaults.MAX_BOARD_SIZE) {
+            throw new IOException("invalid game record");
+        }
+        _size = (int) size;
+        _winner = winner == Side.WHITE.ordinal() ? null
+            : Side.values()[winner];
+        long numMoves = readVar(in);
+        if (numMoves > Integer.MAX_VALUE) {
+            throw new IOException("invalid game record");
+        }
+        _numMoves = 0;
+        for (long k = 0; k < numMoves; k += 1) {
+            add((int) readVar(in));
+        }
+    }
+
+    /**
+     * Write X to OUT as an unsigned variable-length integer.
+     */
+    static void writeVar(OutputStream out, long x) throws IOException {
+        while ((x & ~0x7fL) != 0) {
+            out.write((int) (x & 0x7f) | 0x80);
+            x >>>= 7;
+        }
+        out.write((int) x);
+    }
+
+    /**
+     * Return the unsigned variable-length integer at the current
+     * position of IN, and advance past it.  Throws
+     * BufferUnderflowException if IN ends first, and IOException if the
+     * integer is too long.
+     */
+    static long readVar(ByteBuffer in) throws IOException {
+        long x = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            x |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return x;
+            }
+        }
+        throw new IOException("invalid game record");
+    }
+
+    /**
+     * Size of the board.
+     */
+    private int _size;
+    /**
+     * Seeds of the red and blue players.
+     */
+    private long _redSeed, _blueSeed;
+    /**
+     * The winner, or null.
+     */
+    private Side _winner;
+    /**
+     * The moves, of which the first _numMoves are valid.
+     */
+    private int[] _moves = new int[64];
+    /**
+     * Number of moves.
+     */
+    private int _numMoves;
+
+}
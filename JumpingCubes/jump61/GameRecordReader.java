@@ -0,0 +1,104 @@
+package jump61;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the GameRecords in a file written by GameRecordWriter, in order.
+ * The file is read in large blocks, and records are decoded directly
+ * from them, so that files holding millions of games can be read
+ * quickly.
+ *
+ * @author Aniketh Prasad
+ */
+class GameRecordReader implements AutoCloseable {
+
+    /**
+     * Size of the blocks read, which is increased if needed to hold a
+     * single record.
+     */
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /**
+     * A reader of the records in FILE.  Throws IOException if FILE cannot
+     * be read or is not a file of game records.
+     */
+    GameRecordReader(File file) throws IOException {
+        _in = new FileInputStream(file).getChannel();
+        _buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        _buffer.limit(0);
+        fill();
+        if (_buffer.remaining() < 2 * Integer.BYTES
+            || _buffer.getInt() != GameRecordWriter.MAGIC
+            || _buffer.getInt() != GameRecordWriter.VERSION) {
+            _in.close();
+            throw new IOException(file + " is not a file of game records");
+        }
+    }
+
+    /**
+     * Set RECORD to the next record in my file, and return true, or
+     * return false if there are no more records.  Throws IOException if
+     * the file cannot be read or a record is damaged.
+     */
+    boolean next(GameRecord record) throws IOException {
+        while (true) {
+            if (!_buffer.hasRemaining() && !fill()) {
+                return false;
+            }
+            int start = _buffer.position();
+            try {
+                record.read(_buffer);
+                return true;
+            } catch (BufferUnderflowException excp) {
+                _buffer.position(start);
+                if (_buffer.position() == 0
+                    && _buffer.limit() == _buffer.capacity()) {
+                    ByteBuffer bigger =
+                        ByteBuffer.allocate(2 * _buffer.capacity());
+                    bigger.put(_buffer);
+                    bigger.flip();
+                    _buffer = bigger;
+                }
+                if (!fill()) {
+                    throw new EOFException("incomplete game record");
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the unread part of my buffer to its start and read as much
+     * more of my file as fits.  Returns false if the file is at its end.
+     */
+    private boolean fill() throws IOException {
+        _buffer.compact();
+        int n = _in.read(_buffer);
+        _buffer.flip();
+        return n > 0;
+    }
+
+    /**
+     * Close my file.
+     */
+    @Override
+    public void close() throws IOException {
+        _in.close();
+    }
+
+    /**
+     * The file read.
+     */
+    private final FileChannel _in;
+    /**
+     * Holds the part of the file being decoded, from its position to its
+     * limit.
+     */
+    private ByteBuffer _buffer;
+
+}
@@ -0,0 +1,84 @@
+package jump61;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of GameRecords and their files.
+ *
+ * @author Aniketh Prasad
+ */
+public class GameRecordTest {
+
+    /**
+     * Return a record of a game on an N x N board played with random
+     * legal moves chosen by RANDOM, stopping after at most LIMIT moves
+     * (in which case the game may be unfinished).  The players' seeds
+     * are also chosen by RANDOM.  Used by the tests of the classes that
+     * read GameRecords as well.
+     */
+    static GameRecord play(int N, int limit, Random random) {
+        GameRecord record = new GameRecord();
+        record.clear(N, random.nextLong(), random.nextLong());
+        Board B = new Board(N);
+        while (B.getWinner() == null && record.numMoves() < limit) {
+            int n;
+            do {
+                n = random.nextInt(N * N);
+            } while (!B.isLegal(B.whoseMove(), n));
+            record.add(n);
+            B.addSpot(B.whoseMove(), n);
+        }
+        record.setWinner(B.getWinner());
+        return record;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = File.createTempFile("jump61", ".rec");
+        file.deleteOnExit();
+        GameRecord[] games = new GameRecord[300];
+        Random random = new Random(61);
+        try (GameRecordWriter out = new GameRecordWriter(file)) {
+            for (int k = 0; k < games.length; k += 1) {
+                games[k] = play(2 + k % 9, Integer.MAX_VALUE, random);
+                out.write(games[k]);
+            }
+        }
+        GameRecord record = new GameRecord();
+        Board B = new Board(2), expected = new Board(2);
+        try (GameRecordReader in = new GameRecordReader(file)) {
+            for (GameRecord game : games) {
+                assertTrue("missing record", in.next(record));
+                assertEquals(game.size(), record.size());
+                assertEquals(game.seed(Side.RED), record.seed(Side.RED));
+                assertEquals(game.seed(Side.BLUE), record.seed(Side.BLUE));
+                assertEquals(game.winner(), record.winner());
+                assertEquals(game.numMoves(), record.numMoves());
+                record.replay(B);
+                game.replay(expected);
+                assertEquals(expected, B);
+                assertEquals(game.winner(), B.getWinner());
+            }
+            assertFalse("extra record", in.next(record));
+        }
+    }
+
+    @Test
+    public void testReplayPrefix() {
+        GameRecord record = play(4, Integer.MAX_VALUE, new Random(61));
+        Board B = new Board(4), expected = new Board(4);
+        for (int k = 0; k < 6; k += 1) {
+            expected.addSpot(expected.whoseMove(), record.move(k));
+        }
+        record.replay(B, 6);
+        assertEquals(expected, B);
+        assertNull(B.getWinner());
+    }
+
+}
@@ -0,0 +1,71 @@
+package jump61;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes GameRecords to a file.  The file holds a header (MAGIC and
+ * VERSION, as four-byte integers) followed by the records, in the format
+ * described in GameRecord.  Records may be written from several threads;
+ * each is written whole.
+ *
+ * @author Aniketh Prasad
+ */
+class GameRecordWriter implements AutoCloseable {
+
+    /**
+     * Identifies a file of game records ("J61R").
+     */
+    static final int MAGIC = 0x4a363152;
+    /**
+     * Version number of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * A writer of records to a new file FILE (replacing any existing
+     * one).
+     */
+    GameRecordWriter(File file) throws IOException {
+        _out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        _out.writeInt(MAGIC);
+        _out.writeInt(VERSION);
+    }
+
+    /**
+     * Append RECORD to my file.
+     */
+    synchronized void write(GameRecord record) throws IOException {
+        record.write(_out);
+        _count += 1;
+    }
+
+    /**
+     * Return the number of records written.
+     */
+    synchronized long count() {
+        return _count;
+    }
+
+    /**
+     * Write any buffered records and close my file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        _out.close();
+    }
+
+    /**
+     * The file written.
+     */
+    private final DataOutputStream _out;
+    /**
+     * Number of records written.
+     */
+    private long _count;
+
+}
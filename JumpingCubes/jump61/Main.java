@@ -2,11 +2,13 @@ package jump61;
 
 import ucb.util.CommandArgs;
 
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.List;
 
 import static jump61.Utils.printHelpResource;
 
@@ -38,7 +40,19 @@ public class Main {
     public static void main(String[] args0) {
         CommandArgs args =
                 new CommandArgs("--display{0,1} --strict{0,1} --version{0,1}"
-                        + " --debug=(\\d+){0,1} --log --=(.*){0,}", args0);
+                        + " --debug=(\\d+){0,1} --time=(\\d+){0,1}"
+                        + " --nodes=(\\d+){0,1} --threads=(\\d+){0,1}"
+                        + " --playouts=(\\d+){0,1} --ponder{0,1}"
+                        + " --tablebases=(.+){0,1} --solve=(\\d+){0,1}"
+                        + " --tournament=(\\d+){0,1} --players=(.+){0,1}"
+                        + " --size=(\\d+){0,1} --parallel=(\\d+){0,1}"
+                        + " --seed=(\\d+){0,1}"
+                        + " --record=(.+){0,1} --replay=(.+){0,1}"
+                        + " --database=(.+){0,1} --build-database=(.+){0,1}"
+                        + " --books=(.+){0,1} --book=(\\d+){0,1}"
+                        + " --plies=(\\d+){0,1} --weights=(.+){0,1}"
+                        + " --tune=(.+){0,1} --stats-level=(\\d+){0,1}"
+                        + " --log --=(.*){0,}", args0);
 
         if (!args.ok()) {
             usage();
@@ -56,10 +70,34 @@ public class Main {
             Utils.setMessageLevel(args.getInt("--debug"));
         }
 
+        if (args.contains("--solve")) {
+            System.exit(solve(args.getInt("--solve"), args));
+        }
+
+        if (args.contains("--book")) {
+            System.exit(buildBook(args.getInt("--book"), args));
+        }
+
+        if (args.contains("--build-database")) {
+            System.exit(buildDatabase(args.getFirst("--build-database"),
+                                      args.get("--")));
+        }
+        if (args.contains("--tune")) {
+            System.exit(tune(args.getFirst("--tune"), args));
+        }
+        if (args.contains("--replay")) {
+            System.exit(replay(args.getFirst("--replay")));
+        }
+        if (args.contains("--tournament")) {
+            System.exit(tournament(args.getInt("--tournament"), args));
+        }
+
         Game game;
         if (args.contains("--display")) {
             Display display = new Display("Jump61");
             game = new Game(display, display, display, log);
+            display.setInterruptHandler(game::stopThinking);
+            setLimits(game, args);
             game.play();
         } else {
             TextSource source;
@@ -83,10 +121,272 @@ public class Main {
             game = new Game(new TextSource(inReaders),
                 (b) -> {
                 }, new TextReporter(), log);
+            setLimits(game, args);
             System.exit(game.play());
         }
     }
 
+    /**
+     * Apply the limits, thread count, and evaluation weights for
+     * automated players' searches given in ARGS, if any, to GAME.
+     */
+    private static void setLimits(Game game, CommandArgs args) {
+        try {
+            if (args.contains("--time")) {
+                game.setTimeLimit(args.getLong("--time"));
+            }
+            if (args.contains("--nodes")) {
+                game.setNodeLimit(args.getLong("--nodes"));
+            }
+            if (args.contains("--threads")) {
+                game.setThreads(args.getInt("--threads"));
+            }
+            if (args.contains("--playouts")) {
+                game.setPlayoutLimit(args.getLong("--playouts"));
+            }
+            if (args.contains("--ponder")) {
+                game.setPonder(true);
+            }
+            if (args.contains("--stats-level")) {
+                game.setStatsLevel(args.getInt("--stats-level"));
+            }
+            if (args.contains("--weights")) {
+                String name = args.getFirst("--weights");
+                try {
+                    game.setWeights(EvalWeights.read(new File(name)));
+                } catch (IOException excp) {
+                    throw GameException.error("could not read %s: %s",
+                                              name, excp.getMessage());
+                }
+            }
+            if (args.contains("--tablebases")) {
+                game.setTablebaseDirectory(
+                    new File(args.getFirst("--tablebases")));
+            }
+            if (args.contains("--books")) {
+                game.setBookDirectory(new File(args.getFirst("--books")));
+            }
+            if (args.contains("--database")) {
+                String name = args.getFirst("--database");
+                try {
+                    game.setPositionDatabase(
+                        new PositionDatabase(new File(name)));
+                } catch (IOException excp) {
+                    throw GameException.error("could not read %s: %s",
+                                              name, excp.getMessage());
+                }
+            }
+            if (args.contains("--record") && !args.contains("--tournament")) {
+                game.setRecordFile(args.getFirst("--record"));
+            }
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compute the tablebase for N x N boards, writing it to the directory
+     * given by --tablebases in ARGS (default the current directory), and
+     * using the number of threads given by --threads.  Returns an exit
+     * code.
+     */
+    private static int solve(int N, CommandArgs args) {
+        File dir = new File(args.contains("--tablebases")
+                            ? args.getFirst("--tablebases") : ".");
+        int threads = args.contains("--threads")
+            ? args.getInt("--threads") : Defaults.THREADS;
+        File out = new File(dir, Tablebase.fileName(N));
+        try {
+            TablebaseSolver solver =
+                new TablebaseSolver(N, Math.max(1, threads),
+                                    Defaults.SOLVER_LAYER_LIMIT);
+            long solved = solver.solve(out);
+            System.out.printf("Solved %d positions; wrote %s.%n",
+                              solved, out);
+            return 0;
+        } catch (GameException | IOException excp) {
+            System.err.println(excp.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Generate the opening book for N x N boards, covering the number of
+     * moves given by --plies in ARGS, and write it to the directory given
+     * by --books (default the current directory).  Positions are searched
+     * with the limits and threads given in ARGS, --parallel at a time.
+     * Returns an exit code.
+     */
+    private static int buildBook(int N, CommandArgs args) {
+        Game settings = new Game((prompt) -> null, (board) -> { },
+                                 new TextReporter(), false);
+        setLimits(settings, args);
+        File dir = new File(args.contains("--books")
+                            ? args.getFirst("--books") : ".");
+        int plies = args.contains("--plies")
+            ? args.getInt("--plies") : Defaults.BOOK_PLIES;
+        int parallel = args.contains("--parallel")
+            ? args.getInt("--parallel")
+            : Runtime.getRuntime().availableProcessors();
+        File out = new File(dir, OpeningBook.fileName(N));
+        long start = System.nanoTime();
+        try {
+            OpeningBookBuilder builder =
+                new OpeningBookBuilder(settings, N, plies, parallel);
+            int entries = builder.build(out);
+            System.out.printf("Wrote %d positions to %s in %.1f s.%n",
+                              entries, out,
+                              (System.nanoTime() - start) / 1e9);
+            return 0;
+        } catch (GameException | IOException excp) {
+            System.err.println(excp.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Play a tournament of GAMES games between automated players, as
+     * specified by ARGS, and print a summary of the results.  Returns an
+     * exit code.
+     */
+    private static int tournament(int games, CommandArgs args) {
+        Game settings = new Game((prompt) -> null, (board) -> { },
+                                 new TextReporter(), false);
+        setLimits(settings, args);
+        String[] players = (args.contains("--players")
+                            ? args.getFirst("--players") : "ai,ai")
+            .split(",");
+        int size = args.contains("--size")
+            ? args.getInt("--size") : Defaults.BOARD_SIZE;
+        int parallel = args.contains("--parallel")
+            ? args.getInt("--parallel")
+            : Runtime.getRuntime().availableProcessors();
+        long seed = args.contains("--seed")
+            ? args.getLong("--seed") : System.nanoTime();
+        try {
+            if (players.length != 2) {
+                throw GameException.error("--players needs two kinds");
+            }
+            Tournament tournament =
+                new Tournament(settings, size, players[0], players[1], games,
+                               parallel, seed);
+            if (args.contains("--record")) {
+                try (GameRecordWriter recorder = new GameRecordWriter(
+                         new File(args.getFirst("--record")))) {
+                    tournament.setRecorder(recorder);
+                    tournament.run(System.out);
+                }
+            } else {
+                tournament.run(System.out);
+            }
+            return 0;
+        } catch (GameException | IOException excp) {
+            System.err.println(excp.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Build a position database in file OUT from the games recorded in
+     * the files named in RECORDS, and print the number of entries.
+     * Returns an exit code.
+     */
+    private static int buildDatabase(String out, List<String> records) {
+        PositionDatabaseBuilder builder =
+            new PositionDatabaseBuilder(Defaults.POSITION_RUN_SIZE);
+        long start = System.nanoTime();
+        try {
+            for (String name : records) {
+                builder.addRecords(new File(name));
+            }
+            long entries = builder.write(new File(out));
+            System.out.printf("Wrote %d entries to %s in %.1f s.%n",
+                              entries, out,
+                              (System.nanoTime() - start) / 1e9);
+            return 0;
+        } catch (IOException excp) {
+            System.err.println(excp.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Fit the weights of automated players' evaluations to the results
+     * of the games recorded in the files listed after "--" in ARGS (see
+     * EvalTuner), replaying --parallel batches of games at a time, and
+     * write them to the file OUT.  Returns an exit code.
+     */
+    private static int tune(String out, CommandArgs args) {
+        int parallel = args.contains("--parallel")
+            ? args.getInt("--parallel")
+            : Runtime.getRuntime().availableProcessors();
+        ArrayList<File> records = new ArrayList<>();
+        for (String name : args.get("--")) {
+            records.add(new File(name));
+        }
+        long start = System.nanoTime();
+        try {
+            EvalTuner tuner = new EvalTuner(parallel);
+            EvalWeights weights = tuner.tune(records);
+            weights.write(new File(out),
+                          String.format("fitted to %d positions from %d "
+                                        + "games; log loss %.6f",
+                                        tuner.numPositions(),
+                                        tuner.numGames(), tuner.logLoss()));
+            System.out.printf("Fitted %s to %d positions from %d games "
+                              + "(log loss %.6f, mean squared error %.6f); "
+                              + "wrote %s in %.1f s.%n", weights,
+                              tuner.numPositions(), tuner.numGames(),
+                              tuner.logLoss(), tuner.meanSquaredError(), out,
+                              (System.nanoTime() - start) / 1e9);
+            return 0;
+        } catch (GameException | IOException excp) {
+            System.err.println(excp.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Replay all the games recorded in FILE (see GameRecordWriter),
+     * checking that each is valid and has the recorded winner, and print
+     * statistics and the time taken.  Returns an exit code.
+     */
+    private static int replay(String file) {
+        GameRecord record = new GameRecord();
+        Board board = new Board(Defaults.BOARD_SIZE);
+        long games = 0, moves = 0, mismatches = 0;
+        long[] wins = new long[Side.values().length];
+        long start = System.nanoTime();
+        try (GameRecordReader in = new GameRecordReader(new File(file))) {
+            while (in.next(record)) {
+                record.replay(board);
+                games += 1;
+                moves += record.numMoves();
+                if (board.getWinner() != record.winner()) {
+                    mismatches += 1;
+                }
+                Side winner =
+                    record.winner() == null ? Side.WHITE : record.winner();
+                wins[winner.ordinal()] += 1;
+            }
+        } catch (IOException | IllegalArgumentException excp) {
+            System.err.printf("Error in game %d of %s: %s%n", games + 1,
+                              file, excp.getMessage());
+            return 1;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d moves in %.2f s "
+                          + "(%.0f games/s, %.0f moves/s)%n",
+                          games, moves, seconds, games / seconds,
+                          moves / seconds);
+        System.out.printf("Red won %d, Blue won %d, unfinished %d; "
+                          + "%d with wrong winner%n",
+                          wins[Side.RED.ordinal()], wins[Side.BLUE.ordinal()],
+                          wins[Side.WHITE.ordinal()], mismatches);
+        return mismatches == 0 ? 0 : 1;
+    }
+
     /**
      * Return true if in strict mode, where user errors are not allowed and
      * cause error exit from the program.
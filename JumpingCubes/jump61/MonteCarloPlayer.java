@@ -0,0 +1,387 @@
+package jump61;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An automated Player that chooses moves by Monte Carlo tree search
+ * (UCT): it repeatedly descends a tree of explored positions, choosing
+ * children that balance observed win rate against exploration, extends
+ * the tree by one position, plays the game out from there with random
+ * (lightly guided) moves on a PlayoutBoard, and records the result along
+ * the path.  The move chosen is the most visited one at the root.
+ * <p>
+ * With more than one thread, each thread grows its own tree from the
+ * current position, and the root visit counts are summed (root
+ * parallelization).
+ *
+ * @author Aniketh Prasad
+ */
+class MonteCarloPlayer extends Player {
+
+    /**
+     * Weight of the exploration term in the UCT formula.
+     */
+    private static final double EXPLORATION = 1.4;
+    /**
+     * Number of moves after which a playout is abandoned and scored by
+     * the number of squares each side holds.
+     */
+    private static final int MAX_PLAYOUT_MOVES = 1000;
+    /**
+     * Number of playouts between checks of the clock.
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    /**
+     * Source of seeds for the random choices of each search thread.
+     */
+    private final Random _random;
+    /**
+     * Approximate limit on the time spent choosing a move, in
+     * milliseconds.
+     */
+    private long _timeLimit = Defaults.TIME_LIMIT;
+    /**
+     * Limit on the number of playouts per move, or 0 for no limit.
+     */
+    private long _playoutLimit = Defaults.PLAYOUT_LIMIT;
+    /**
+     * Number of threads searching for each move.
+     */
+    private int _threads = 1;
+    /**
+     * Runs the searches of all threads but the calling one, when
+     * _threads > 1.
+     */
+    private ExecutorService _pool;
+
+    /**
+     * A new player of GAME initially COLOR that chooses moves by Monte
+     * Carlo tree search.  SEED provides a random-number seed used for
+     * playouts.
+     */
+    MonteCarloPlayer(Game game, Side color, long seed) {
+        super(game, color);
+        _random = new Random(seed);
+    }
+
+    @Override
+    String getMove() {
+        Board board = getBoard();
+        int choice = chooseMove();
+        getGame().reportMove(board.row(choice), board.col(choice));
+        return String.format("%d %d", board.row(choice), board.col(choice));
+    }
+
+    @Override
+    int chooseMove() {
+        Board board = getBoard();
+        assert getSide() == board.whoseMove();
+        setLimits(getGame().timeLimit(), getGame().playoutLimit());
+        setThreads(getGame().threads());
+        return findMove(board);
+    }
+
+    /**
+     * Limit subsequent searches to about TIMELIMIT milliseconds and to
+     * PLAYOUTLIMIT playouts (no limit if 0) per move.
+     */
+    void setLimits(long timeLimit, long playoutLimit) {
+        _timeLimit = timeLimit;
+        _playoutLimit = playoutLimit;
+    }
+
+    @Override
+    boolean isAutomated() {
+        return true;
+    }
+
+    @Override
+    void retire() {
+        setThreads(1);
+    }
+
+    /**
+     * Search for each move using THREADS threads.
+     */
+    void setThreads(int threads) {
+        if (threads == _threads) {
+            return;
+        }
+        if (_pool != null) {
+            _pool.shutdownNow();
+            _pool = null;
+        }
+        _threads = threads;
+        if (threads > 1) {
+            _pool = Executors.newFixedThreadPool(threads - 1, (r) -> {
+                Thread thread = new Thread(r, "jump61-playout");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Return the move I choose on BOARD, which must be a position in
+     * which it is my turn and the game is not over.  If my thread is
+     * interrupted, stops the searches in other threads and returns the
+     * best move found so far, leaving the thread's interrupt status set.
+     * Rethrows any exception thrown by a search in another thread.
+     */
+    int findMove(Board board) {
+        PlayoutBoard root = new PlayoutBoard();
+        root.copy(board);
+        long deadline = System.currentTimeMillis() + _timeLimit;
+        long playouts = _playoutLimit == 0 ? Long.MAX_VALUE
+            : (_playoutLimit + _threads - 1) / _threads;
+
+        ArrayList<Future<Node>> others = new ArrayList<>();
+        for (int i = 1; i < _threads; i += 1) {
+            Search search =
+                new Search(root, _random.nextLong(), deadline, playouts);
+            others.add(_pool.submit(search));
+        }
+        long[] visits = new long[board.size() * board.size()];
+        tally(new Search(root, _random.nextLong(), deadline, playouts)
+              .call(), visits);
+        try {
+            for (Future<Node> other : others) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                tally(other.get(), visits);
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            Throwable failure = excp.getCause();
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IllegalStateException("playout search failed", failure);
+        } finally {
+            for (Future<Node> other : others) {
+                other.cancel(true);
+            }
+        }
+        int best = -1;
+        for (int m = 0; m < visits.length; m += 1) {
+            if (root.isLegal(m) && (best == -1 || visits[m] > visits[best])) {
+                best = m;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Add the visit counts of the children of ROOT to VISITS, indexed by
+     * move.
+     */
+    private static void tally(Node root, long[] visits) {
+        for (int i = 0; i < root._numChildren; i += 1) {
+            Node child = root._children[i];
+            visits[child._move] += child._visits;
+        }
+    }
+
+    /**
+     * A position in a search tree.
+     */
+    private static class Node {
+
+        /**
+         * A node reached from PARENT by MOVE, which was made by MOVER,
+         * in a position POSITION.
+         */
+        Node(Node parent, int move, Side mover, PlayoutBoard position) {
+            _parent = parent;
+            _move = move;
+            _mover = mover;
+            _winner = position.winner();
+            if (_winner == null) {
+                _untried = new int[position.size() * position.size()];
+                _numUntried = position.legalMoves(_untried);
+                _children = new Node[_numUntried];
+            }
+        }
+
+        /**
+         * Return my child with the highest UCT score.  Assumes I have at
+         * least one child.
+         */
+        Node select() {
+            double logVisits = Math.log(_visits);
+            Node best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < _numChildren; i += 1) {
+                Node child = _children[i];
+                double score = child._wins / child._visits
+                    + EXPLORATION * Math.sqrt(logVisits / child._visits);
+                if (score > bestScore) {
+                    best = child;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * The node from which I was reached, or null for the root.
+         */
+        private final Node _parent;
+        /**
+         * The move that led to me from _parent.
+         */
+        private final int _move;
+        /**
+         * The Side that made _move.
+         */
+        private final Side _mover;
+        /**
+         * The winner in my position, or null if the game is not over.
+         */
+        private final Side _winner;
+        /**
+         * Moves from my position not yet added as children.
+         */
+        private int[] _untried;
+        /**
+         * Number of valid entries in _untried.
+         */
+        private int _numUntried;
+        /**
+         * My children, of which the first _numChildren are valid.
+         */
+        private Node[] _children;
+        /**
+         * Number of valid entries in _children.
+         */
+        private int _numChildren;
+        /**
+         * Number of playouts through me.
+         */
+        private int _visits;
+        /**
+         * Number of those playouts won by _mover (draws, from abandoned
+         * playouts, count one half).
+         */
+        private double _wins;
+    }
+
+    /**
+     * The search of one thread: grows a tree from a given position until
+     * out of time or playouts, and returns its root.
+     */
+    private static class Search implements Callable<Node> {
+
+        /**
+         * A search from position ROOT, which is not modified, using SEED
+         * for random choices, and running until DEADLINE (as for
+         * System.currentTimeMillis), for PLAYOUTS playouts, or until its
+         * thread is interrupted.
+         */
+        Search(PlayoutBoard root, long seed, long deadline, long playouts) {
+            _root = root;
+            _random = new Random(seed);
+            _deadline = deadline;
+            _playouts = playouts;
+        }
+
+        @Override
+        public Node call() {
+            Node root = new Node(null, -1, _root.whoseMove().opposite(),
+                                 _root);
+            for (long k = 0; k < _playouts; k += 1) {
+                if (k % CLOCK_CHECK_INTERVAL == 0 && k > 0
+                    && (System.currentTimeMillis() > _deadline
+                        || Thread.currentThread().isInterrupted())) {
+                    break;
+                }
+                _board.copy(_root);
+                Node node = root;
+                while (node._numUntried == 0 && node._numChildren > 0) {
+                    node = node.select();
+                    _board.play(node._move);
+                }
+                if (node._numUntried > 0) {
+                    int i = _random.nextInt(node._numUntried);
+                    int move = node._untried[i];
+                    node._numUntried -= 1;
+                    node._untried[i] = node._untried[node._numUntried];
+                    Side mover = _board.whoseMove();
+                    _board.play(move);
+                    Node child = new Node(node, move, mover, _board);
+                    node._children[node._numChildren] = child;
+                    node._numChildren += 1;
+                    node = child;
+                }
+                backup(node, playOut());
+            }
+            return root;
+        }
+
+        /**
+         * Play out the game on _board with random moves, and return the
+         * winner, or null if the playout is abandoned with the sides
+         * holding equal numbers of squares.
+         */
+        private Side playOut() {
+            for (int k = 0; k < MAX_PLAYOUT_MOVES; k += 1) {
+                Side winner = _board.winner();
+                if (winner != null) {
+                    return winner;
+                }
+                _board.play(_board.randomMove(_random));
+            }
+            int red = _board.numOfSide(Side.RED),
+                blue = _board.numOfSide(Side.BLUE);
+            return red > blue ? Side.RED : blue > red ? Side.BLUE : null;
+        }
+
+        /**
+         * Record a playout won by WINNER (null for a draw) in NODE and
+         * all its ancestors.
+         */
+        private void backup(Node node, Side winner) {
+            for (; node != null; node = node._parent) {
+                node._visits += 1;
+                if (winner == node._mover) {
+                    node._wins += 1;
+                } else if (winner == null) {
+                    node._wins += 0.5;
+                }
+            }
+        }
+
+        /**
+         * The position searched.
+         */
+        private final PlayoutBoard _root;
+        /**
+         * The board on which playouts are made.
+         */
+        private final PlayoutBoard _board = new PlayoutBoard();
+        /**
+         * Source of random choices.
+         */
+        private final Random _random;
+        /**
+         * Time at which the search stops.
+         */
+        private final long _deadline;
+        /**
+         * Number of playouts after which the search stops.
+         */
+        private final long _playouts;
+    }
+
+}
@@ -0,0 +1,150 @@
+package jump61;
+
+import java.util.Arrays;
+
+/**
+ * Ranks the moves at a node of a game-tree search so that those most
+ * likely to cause an alpha-beta cutoff are searched first.  In order of
+ * priority, these are the best move remembered from a previous search of
+ * the position (typically from a TranspositionTable), the killer moves
+ * that last caused cutoffs at the same ply, moves onto critical squares
+ * (which start cascades), and finally all other moves, ranked by how
+ * often they have caused cutoffs anywhere in the search (the history
+ * heuristic).
+ *
+ * @author Aniketh Prasad
+ */
+class MoveOrderer {
+
+    /**
+     * Number of killer moves remembered per ply.
+     */
+    private static final int NUM_KILLERS = 2;
+    /**
+     * Score of the remembered best move.
+     */
+    private static final int BEST_SCORE = 1 << 30;
+    /**
+     * Score of the first killer move at a ply.  Later killers score
+     * successively lower powers of 2.
+     */
+    private static final int KILLER_SCORE = 1 << 29;
+    /**
+     * Score of moves that start cascades.
+     */
+    private static final int CASCADE_SCORE = 1 << 26;
+    /**
+     * Bound on history scores, which are halved whenever one exceeds it.
+     */
+    private static final int MAX_HISTORY = CASCADE_SCORE - 1;
+
+    /**
+     * Killer moves, indexed by ply and then by recency.  -1 denotes no
+     * move.
+     */
+    private int[][] _killers = new int[0][];
+    /**
+     * History scores, indexed by ordinal of the moving Side and then by
+     * square number.
+     */
+    private final int[][] _history =
+        new int[Side.values().length]
+        [Defaults.MAX_BOARD_SIZE * Defaults.MAX_BOARD_SIZE];
+    /**
+     * Scratch space for move scores, indexed by ply.  Allocated here to
+     * cut down on allocations.
+     */
+    private int[][] _scores = new int[0][];
+
+    /**
+     * Prepare for a new search: forget all killer moves, and age the
+     * history scores.
+     */
+    void newSearch() {
+        for (int[] killers : _killers) {
+            Arrays.fill(killers, -1);
+        }
+        for (int[] history : _history) {
+            for (int i = 0; i < history.length; i += 1) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Sort the first NUMMOVES entries of MOVES, which are the moves
+     * available on BOARD at PLY (distance from the root of the search),
+     * best first.  BEST is the remembered best move for the position, or
+     * -1 if none.
+     */
+    void order(Board board, int[] moves, int numMoves, int best, int ply) {
+        int[] killers = killers(ply);
+        int[] history = _history[board.whoseMove().ordinal()];
+        if (ply >= _scores.length) {
+            _scores = Arrays.copyOf(_scores, ply + 1);
+        }
+        if (_scores[ply] == null || _scores[ply].length < numMoves) {
+            _scores[ply] = new int[moves.length];
+        }
+        int[] scores = _scores[ply];
+        for (int i = 0; i < numMoves; i += 1) {
+            int m = moves[i];
+            int score;
+            if (m == best) {
+                score = BEST_SCORE;
+            } else if (m == killers[0]) {
+                score = KILLER_SCORE;
+            } else if (m == killers[1]) {
+                score = KILLER_SCORE >> 1;
+            } else if (board.critical(m)) {
+                score = CASCADE_SCORE + history[m];
+            } else {
+                score = history[m];
+            }
+            int j;
+            for (j = i; j > 0 && scores[j - 1] < score; j -= 1) {
+                scores[j] = scores[j - 1];
+                moves[j] = moves[j - 1];
+            }
+            scores[j] = score;
+            moves[j] = m;
+        }
+    }
+
+    /**
+     * Record that MOVE by PLAYER caused a cutoff at PLY in a search to
+     * DEPTH more levels.
+     */
+    void cutoff(Side player, int move, int depth, int ply) {
+        int[] killers = killers(ply);
+        if (killers[0] != move) {
+            System.arraycopy(killers, 0, killers, 1, NUM_KILLERS - 1);
+            killers[0] = move;
+        }
+        int[] history = _history[player.ordinal()];
+        history[move] += depth * depth;
+        if (history[move] > MAX_HISTORY) {
+            for (int[] side : _history) {
+                for (int i = 0; i < side.length; i += 1) {
+                    side[i] >>= 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the killer moves for PLY, allocating them if needed.
+     */
+    private int[] killers(int ply) {
+        if (ply >= _killers.length) {
+            int n = _killers.length;
+            _killers = Arrays.copyOf(_killers, ply + 1);
+            for (; n <= ply; n += 1) {
+                _killers[n] = new int[NUM_KILLERS];
+                Arrays.fill(_killers[n], -1);
+            }
+        }
+        return _killers[ply];
+    }
+
+}
@@ -0,0 +1,69 @@
+package jump61;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of MoveOrderer.
+ *
+ * @author Aniketh Prasad
+ */
+public class MoveOrdererTest {
+
+    /**
+     * Return the squares of an N x N board in order.
+     */
+    private static int[] allSquares(int N) {
+        int[] moves = new int[N * N];
+        for (int n = 0; n < moves.length; n += 1) {
+            moves[n] = n;
+        }
+        return moves;
+    }
+
+    /**
+     * Check that MOVES is EXPECTED.
+     */
+    private static void checkOrder(int[] expected, int[] moves) {
+        for (int i = 0; i < expected.length; i += 1) {
+            assertEquals("wrong move #" + i, expected[i], moves[i]);
+        }
+    }
+
+    @Test
+    public void testOrder() {
+        Board B = new Board(3);
+        B.set(1, 1, 2, Side.RED);
+        B.set(3, 3, 2, Side.RED);
+        assertEquals(Side.RED, B.whoseMove());
+
+        MoveOrderer orderer = new MoveOrderer();
+        orderer.newSearch();
+        orderer.cutoff(Side.RED, 4, 3, 5);
+        orderer.cutoff(Side.RED, 7, 2, 5);
+        orderer.cutoff(Side.RED, 8, 2, 5);
+        orderer.cutoff(Side.RED, 5, 1, 5);
+        orderer.cutoff(Side.BLUE, 1, 5, 5);
+        orderer.cutoff(Side.RED, 2, 1, 0);
+        orderer.cutoff(Side.RED, 6, 1, 0);
+
+        int[] moves = allSquares(3);
+        orderer.order(B, moves, moves.length, 3, 0);
+        checkOrder(new int[] { 3, 6, 2, 8, 0, 4, 7, 5, 1 }, moves);
+
+        moves = allSquares(3);
+        orderer.order(B, moves, moves.length, -1, 5);
+        checkOrder(new int[] { 1, 5, 8, 0, 4, 7, 2, 6, 3 }, moves);
+
+        orderer.newSearch();
+        moves = allSquares(3);
+        orderer.order(B, moves, moves.length, -1, 0);
+        checkOrder(new int[] { 8, 0, 4, 7, 1, 2, 3, 5, 6 }, moves);
+
+        moves = new int[] { 1, 8, 7, 0 };
+        orderer.order(B, moves, 3, 1, 0);
+        checkOrder(new int[] { 1, 8, 7, 0 }, moves);
+    }
+
+}
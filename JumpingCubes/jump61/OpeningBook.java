@@ -0,0 +1,167 @@
+package jump61;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A precomputed opening book for one board size, as generated by
+ * OpeningBookBuilder, read from a memory-mapped file.  For each position
+ * in the book it gives the move chosen by a deep search from the
+ * position, the value of the position for the player to move (in the units
+ * of AI.staticEval), and the depth of the search.
+ * <p>
+ * The file holds a HEADER_SIZE-byte header (MAGIC, VERSION, the board
+ * size, and the number of entries), then the entries, ENTRY_SIZE bytes
+ * each, sorted by canonical position hash (see Board.canonicalHash), so
+ * that positions related by a symmetry of the board share an entry.
+ * Each entry's move is for the canonical form of its position.
+ *
+ * @author Aniketh Prasad
+ */
+class OpeningBook {
+
+    /**
+     * Identifies an opening book file ("J61B").
+     */
+    static final int MAGIC = 0x4a363142;
+    /**
+     * Version number of the file format.
+     */
+    static final int VERSION = 2;
+    /**
+     * Size of the file header in bytes.
+     */
+    static final int HEADER_SIZE = 16;
+    /**
+     * Size of an entry in bytes: hash (8 bytes), move and search depth
+     * (2 bytes each), and value (4 bytes).
+     */
+    static final int ENTRY_SIZE = 16;
+
+    /**
+     * The book in FILE, which is mapped read-only.  Throws IOException
+     * if FILE cannot be read or is not an opening book.
+     */
+    OpeningBook(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer header =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file + " is not an opening book");
+            }
+            _size = header.getInt();
+            _numEntries = header.getInt();
+            if (_size < 2 || _size > Defaults.MAX_BOARD_SIZE
+                || _numEntries < 0
+                || channel.size()
+                   != HEADER_SIZE + (long) _numEntries * ENTRY_SIZE) {
+                throw new IOException(file + " is damaged");
+            }
+            _entries = channel.map(FileChannel.MapMode.READ_ONLY,
+                                   HEADER_SIZE,
+                                   (long) _numEntries * ENTRY_SIZE);
+        }
+    }
+
+    /**
+     * Return the name of the opening book file for N x N boards.
+     */
+    static String fileName(int N) {
+        return String.format("jump61-%dx%d.book", N, N);
+    }
+
+    /**
+     * Return the size of the boards I cover.
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Return the number of positions in the book.
+     */
+    int numEntries() {
+        return _numEntries;
+    }
+
+    /**
+     * Return the book move for the position on BOARD, or -1 if the
+     * position is not in the book (or the book move is not legal, which
+     * happens only for a position whose hash collides with that of a
+     * book position).
+     */
+    int move(Board board) {
+        int e = find(board);
+        if (e < 0) {
+            return -1;
+        }
+        int move = _entries.getShort(e * ENTRY_SIZE + 8);
+        if (move < 0 || move >= _size * _size) {
+            return -1;
+        }
+        int undo = Board.INVERSE_SYMMETRY[board.canonicalSymmetry()];
+        move = Board.symmetries(_size)[undo][move];
+        if (!board.isLegal(board.whoseMove(), move)) {
+            return -1;
+        }
+        return move;
+    }
+
+    /**
+     * Return the book value of the position on BOARD for the player to
+     * move.  Requires that the position be in the book.
+     */
+    int value(Board board) {
+        return _entries.getInt(find(board) * ENTRY_SIZE + 12);
+    }
+
+    /**
+     * Return the depth of the search that gave the book move for the
+     * position on BOARD.  Requires that the position be in the book.
+     */
+    int depth(Board board) {
+        return _entries.getShort(find(board) * ENTRY_SIZE + 10);
+    }
+
+    /**
+     * Return the number of the entry for the position on BOARD, or -1
+     * if there is none.
+     */
+    private int find(Board board) {
+        if (board.size() != _size) {
+            return -1;
+        }
+        long hash = board.canonicalHash();
+        int lo = 0, hi = _numEntries;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (_entries.getLong(mid * ENTRY_SIZE) < hash) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if (lo == _numEntries || _entries.getLong(lo * ENTRY_SIZE) != hash) {
+            return -1;
+        }
+        return lo;
+    }
+
+    /**
+     * Size of the boards I cover.
+     */
+    private final int _size;
+    /**
+     * Number of entries.
+     */
+    private final int _numEntries;
+    /**
+     * The entries.
+     */
+    private final ByteBuffer _entries;
+
+}
@@ -0,0 +1,194 @@
+package jump61;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static jump61.GameException.error;
+import static jump61.Side.*;
+import static jump61.Utils.debug;
+
+/**
+ * Generates an OpeningBook for one board size by searching the opening
+ * positions deeply.  Positions related by a symmetry of the board are
+ * treated as one.  The book is built for each color in turn, from the
+ * initial position out to a given number of plies (moves by either
+ * side): in positions where that color is to move, the position is
+ * searched and only the move chosen is followed; in positions where the
+ * opponent is to move, every legal reply is followed.  Thus the book
+ * covers every line of play the book's own moves allow.  The searches of
+ * each ply are spread over a pool of threads, each with its own AI.
+ *
+ * @author Aniketh Prasad
+ */
+class OpeningBookBuilder {
+
+    /**
+     * A builder of the book for SIZE x SIZE boards covering the first
+     * PLIES moves, searching PARALLEL positions at a time with the time
+     * and position limits, thread count, and evaluation weights set in
+     * SETTINGS.
+     */
+    OpeningBookBuilder(Game settings, int size, int plies, int parallel) {
+        if (size < 2 || size > Defaults.MAX_BOARD_SIZE) {
+            throw error("size must be between 2 and %d",
+                        Defaults.MAX_BOARD_SIZE);
+        }
+        if (plies < 1 || parallel < 1) {
+            throw error("numbers of plies and of positions searched at "
+                        + "once must be positive");
+        }
+        _settings = settings;
+        _size = size;
+        _plies = plies;
+        _parallel = parallel;
+    }
+
+    /**
+     * Generate the book and write it to FILE.  Returns the number of
+     * positions in it.
+     */
+    int build(File file) throws IOException {
+        TreeMap<Long, int[]> book = new TreeMap<>();
+        ArrayList<HashMap<Long, Board>> lines = new ArrayList<>();
+        for (int c = 0; c < 2; c += 1) {
+            lines.add(new HashMap<>());
+            lines.get(c).put(new Board(_size).canonicalHash(),
+                             new Board(_size));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(_parallel);
+        ThreadLocal<AI> searchers = ThreadLocal.withInitial(() -> {
+            AI ai = new AI(_settings, RED, 0);
+            ai.setLimits(_settings.timeLimit(), _settings.nodeLimit());
+            ai.setThreads(_settings.threads());
+            ai.setWeights(_settings.weights());
+            return ai;
+        });
+        try {
+            for (int ply = 0; ply < _plies; ply += 1) {
+                HashMap<Long, Future<int[]>> searches = new HashMap<>();
+                for (int c = 0; c < 2; c += 1) {
+                    Side owner = c == 0 ? RED : BLUE;
+                    for (Map.Entry<Long, Board> pos
+                             : lines.get(c).entrySet()) {
+                        Board board = pos.getValue();
+                        if (board.whoseMove() == owner
+                            && !searches.containsKey(pos.getKey())) {
+                            searches.put(pos.getKey(), pool.submit(
+                                () -> search(searchers.get(), board)));
+                        }
+                    }
+                }
+                for (Map.Entry<Long, Future<int[]>> s : searches.entrySet()) {
+                    book.put(s.getKey(), s.getValue().get());
+                }
+                debug(1, "ply %d: searched %d positions", ply,
+                      searches.size());
+                for (int c = 0; c < 2; c += 1) {
+                    lines.set(c, extend(lines.get(c), c == 0 ? RED : BLUE,
+                                        book));
+                }
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("book generation failed: %s", excp.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        write(book, file);
+        return book.size();
+    }
+
+    /**
+     * Return the entry for the position on BOARD found by searching it
+     * with SEARCHER: the move chosen (for the canonical form of the
+     * position), the depth of the search, and the value of the position
+     * for the player to move.
+     */
+    private static int[] search(AI searcher, Board board) {
+        int move = searcher.searchForMove(board);
+        move = Board.symmetries(board.size())[board.canonicalSymmetry()][move];
+        return new int[] { move, searcher.searchDepth(),
+                           searcher.searchValue() };
+    }
+
+    /**
+     * Return the positions one ply beyond those in LINE, which is being
+     * built for OWNER, whose moves are taken from BOOK.  Positions in
+     * which the game is over are dropped.
+     */
+    private HashMap<Long, Board> extend(HashMap<Long, Board> line,
+                                        Side owner, Map<Long, int[]> book) {
+        HashMap<Long, Board> next = new HashMap<>();
+        for (Map.Entry<Long, Board> pos : line.entrySet()) {
+            Board board = pos.getValue();
+            Side player = board.whoseMove();
+            int bookMove = -1;
+            if (player == owner) {
+                int undo = Board.INVERSE_SYMMETRY[board.canonicalSymmetry()];
+                bookMove =
+                    Board.symmetries(_size)[undo][book.get(pos.getKey())[0]];
+            }
+            for (int n = 0; n < _size * _size; n += 1) {
+                if (player == owner ? n == bookMove
+                    : board.isLegal(player, n)) {
+                    Board child = new Board(board);
+                    child.addSpot(player, n);
+                    if (child.getWinner() == null) {
+                        next.put(child.canonicalHash(), child);
+                    }
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Write the entries of BOOK, indexed by position hash, to FILE in the
+     * format of an OpeningBook.
+     */
+    private void write(TreeMap<Long, int[]> book, File file)
+        throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(_size);
+            out.writeInt(book.size());
+            for (Map.Entry<Long, int[]> entry : book.entrySet()) {
+                int[] data = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeShort(data[0]);
+                out.writeShort(data[1]);
+                out.writeInt(data[2]);
+            }
+        }
+    }
+
+    /**
+     * Source of the search limits.
+     */
+    private final Game _settings;
+    /**
+     * Size of the boards covered.
+     */
+    private final int _size;
+    /**
+     * Number of plies covered.
+     */
+    private final int _plies;
+    /**
+     * Number of positions searched at once.
+     */
+    private final int _parallel;
+
+}
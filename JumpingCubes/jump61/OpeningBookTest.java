@@ -0,0 +1,50 @@
+package jump61;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of OpeningBooks and their generation.
+ *
+ * @author Aniketh Prasad
+ */
+public class OpeningBookTest {
+
+    @Test
+    public void testBuild() throws IOException {
+        File file = File.createTempFile("jump61", ".book");
+        file.deleteOnExit();
+        Game settings = new Game((prompt) -> null, (board) -> { },
+                                 new TextReporter(), false);
+        settings.setNodeLimit(2000);
+        int entries = new OpeningBookBuilder(settings, 3, 3, 2).build(file);
+        OpeningBook book = new OpeningBook(file);
+        assertEquals(3, book.size());
+        assertEquals(entries, book.numEntries());
+
+        Board B = new Board(3);
+        int move = book.move(B);
+        assertTrue("no book move for initial position", move >= 0);
+        assertTrue(book.depth(B) > 0);
+        B.addSpot(Side.RED, move);
+        for (int n = 0; n < 9; n += 1) {
+            Board C = new Board(3);
+            C.addSpot(Side.RED, n);
+            int reply = book.move(C);
+            assertTrue("no book reply to " + n, reply >= 0);
+            assertTrue(C.isLegal(Side.BLUE, reply));
+            if (B.isLegal(Side.BLUE, n)) {
+                Board D = new Board(B);
+                D.addSpot(Side.BLUE, n);
+                assertTrue("no book move after reply " + n,
+                           D.getWinner() != null || book.move(D) >= 0);
+            }
+        }
+        assertEquals(-1, book.move(new Board(4)));
+    }
+
+}
@@ -0,0 +1,147 @@
+package jump61;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the move sequences of a given length from a position ("perft",
+ * as in chess programs): the number of positions at exactly that depth
+ * in the full game tree, using Board.isLegal to generate moves and
+ * Board.makeMove (hence the cascade logic of addSpot) to make them.
+ * Positions in which the game is over have no moves, so sequences that
+ * end the game early are not counted.  The counts depend only on the
+ * rules, so they check that a change to Board leaves its behavior
+ * unchanged, and the time taken measures its speed.
+ *
+ * @author Aniketh Prasad
+ */
+class Perft {
+
+    /**
+     * A counter of move sequences of length DEPTH from the position on
+     * BOARD, which is copied, using THREADS threads.  Requires DEPTH >= 1.
+     */
+    Perft(Board board, int depth, int threads) {
+        _board = new Board(board);
+        _depth = depth;
+        _threads = threads;
+    }
+
+    /**
+     * Count the sequences, recording the count for each first move (see
+     * count(int)), their total, and the time taken.
+     */
+    void run() {
+        Side player = _board.whoseMove();
+        int numSquares = _board.size() * _board.size();
+        _counts = new long[numSquares];
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        try {
+            ArrayList<Future<Long>> counts = new ArrayList<>();
+            for (int n = 0; n < numSquares; n += 1) {
+                if (_board.getWinner() == null
+                    && _board.isLegal(player, n)) {
+                    Board board = new Board(_board);
+                    int move = n;
+                    counts.add(pool.submit(() -> {
+                        board.makeMove(player, move);
+                        return count(board, _depth - 1);
+                    }));
+                } else {
+                    counts.add(null);
+                }
+            }
+            _total = 0;
+            for (int n = 0; n < numSquares; n += 1) {
+                if (counts.get(n) != null) {
+                    _counts[n] = counts.get(n).get();
+                    _total += _counts[n];
+                }
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        } finally {
+            pool.shutdownNow();
+        }
+        _nanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Return the number of move sequences of length DEPTH from the
+     * position on BOARD, which is restored before returning.
+     */
+    static long count(Board board, int depth) {
+        if (depth == 0) {
+            return 1;
+        } else if (board.getWinner() != null) {
+            return 0;
+        }
+        Side player = board.whoseMove();
+        int numSquares = board.size() * board.size();
+        long total = 0;
+        for (int n = 0; n < numSquares; n += 1) {
+            if (board.isLegal(player, n)) {
+                if (depth == 1) {
+                    total += 1;
+                } else {
+                    int token = board.makeMove(player, n);
+                    total += count(board, depth - 1);
+                    board.unmakeMove(token);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Return the number of sequences found by run that begin with a move
+     * to square #N (0 if that move is illegal).
+     */
+    long count(int n) {
+        return _counts[n];
+    }
+
+    /**
+     * Return the total number of sequences found by run.
+     */
+    long total() {
+        return _total;
+    }
+
+    /**
+     * Return the time taken by run, in nanoseconds.
+     */
+    long nanos() {
+        return _nanos;
+    }
+
+    /**
+     * The position from which sequences are counted.
+     */
+    private final Board _board;
+    /**
+     * Length of the sequences counted.
+     */
+    private final int _depth;
+    /**
+     * Number of threads used.
+     */
+    private final int _threads;
+    /**
+     * Number of sequences beginning with each move, indexed by square.
+     */
+    private long[] _counts;
+    /**
+     * Total number of sequences.
+     */
+    private long _total;
+    /**
+     * Time taken by run, in nanoseconds.
+     */
+    private long _nanos;
+
+}
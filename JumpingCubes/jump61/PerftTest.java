@@ -0,0 +1,51 @@
+package jump61;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of Perft, against move-sequence counts computed by
+ * copying boards and using addSpot.
+ *
+ * @author Aniketh Prasad
+ */
+public class PerftTest {
+
+    @Test
+    public void testCounts() {
+        long[][] expected = {
+            { 4, 12, 36, 52, 48, 0 },
+            { 9, 72, 576, 4040, 28368 },
+            { 16, 240, 3600, 50520, 709160 },
+        };
+        for (int N = 2; N <= 4; N += 1) {
+            long[] counts = expected[N - 2];
+            for (int depth = 1; depth <= counts.length; depth += 1) {
+                assertEquals(String.format("%dx%d, depth %d", N, N, depth),
+                             counts[depth - 1],
+                             Perft.count(new Board(N), depth));
+            }
+        }
+    }
+
+    @Test
+    public void testThreads() {
+        Board B = new Board(4);
+        B.addSpot(Side.RED, 1, 1);
+        B.addSpot(Side.BLUE, 2, 2);
+        B.addSpot(Side.RED, 1, 1);
+        Board orig = new Board(B);
+        Perft perft = new Perft(B, 4, 3);
+        perft.run();
+        assertEquals(Perft.count(B, 4), perft.total());
+        long total = 0;
+        for (int n = 0; n < 16; n += 1) {
+            total += perft.count(n);
+        }
+        assertEquals(perft.total(), total);
+        assertEquals("board changed", orig, B);
+        assertEquals("illegal first move counted", 0, perft.count(0));
+    }
+
+}
@@ -54,4 +54,39 @@ abstract class Player {
      */
     abstract String getMove();
 
+    /**
+     * Return my next move as a square number, without reporting it, or
+     * -1 if I do not choose moves myself (so that they must be obtained
+     * with getMove).  Assumes that I am of the proper color and that the
+     * game is not yet won.
+     */
+    int chooseMove() {
+        return -1;
+    }
+
+    /**
+     * Notify me that PLAYER (possibly I) has just moved to square #N of
+     * the game board, which now shows the result.  By default, does
+     * nothing.
+     */
+    void moveMade(Side player, int n) {
+    }
+
+    /**
+     * Return true iff I choose my moves automatically, so that getMove
+     * may run in a background thread and be interrupted: an automated
+     * player whose thread is interrupted returns the best move it has
+     * found so far as soon as it can.  By default, false.
+     */
+    boolean isAutomated() {
+        return false;
+    }
+
+    /**
+     * Release any resources, such as search threads, that I hold.  Called
+     * when I am no longer to be used.
+     */
+    void retire() {
+    }
+
 }
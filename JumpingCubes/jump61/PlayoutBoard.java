@@ -0,0 +1,285 @@
+package jump61;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static jump61.Side.*;
+
+/**
+ * A stripped-down Jump61 board for playing out games at high speed, as
+ * in Monte Carlo search.  It follows the same rules as Board, and
+ * distributes the spots of overfull squares in the same order, but keeps
+ * no undo history, hash, or notifier, and does no checking.  Moves are
+ * always made by the player whose turn it is.
+ *
+ * @author Aniketh Prasad
+ */
+class PlayoutBoard {
+
+    /**
+     * All Sides, indexed by ordinal.
+     */
+    private static final Side[] SIDES = Side.values();
+    /**
+     * Number of squares sampled when choosing a guided random move.
+     */
+    private static final int SAMPLES = 4;
+
+    /**
+     * Number of rows and of columns.
+     */
+    private int _size;
+    /**
+     * Number of spots on each square, indexed by square number.
+     */
+    private byte[] _spots = new byte[0];
+    /**
+     * Ordinal of the Side of each square, indexed by square number.
+     */
+    private byte[] _sides = new byte[0];
+    /**
+     * Neighbor table for the current size (see Board.adjacencies).
+     */
+    private int[][] _adjacent;
+    /**
+     * Total number of spots on the board.
+     */
+    private int _numSpots;
+    /**
+     * Number of squares of each Side, indexed by ordinal.
+     */
+    private final int[] _sideCounts = new int[SIDES.length];
+    /**
+     * Squares whose spots are being distributed, and for each, the index
+     * of the next neighbor to receive one (as for Board.jump).
+     */
+    private int[] _jumpSquares = new int[16], _jumpNext = new int[16];
+
+    /**
+     * Copy the contents of BOARD into me.
+     */
+    void copy(Board board) {
+        resize(board.size());
+        for (int n = 0; n < _spots.length; n += 1) {
+            Square sq = board.get(n);
+            _spots[n] = (byte) sq.getSpots();
+            _sides[n] = (byte) sq.getSide().ordinal();
+        }
+        recount();
+    }
+
+    /**
+     * Copy the contents of BOARD into me.
+     */
+    void copy(PlayoutBoard board) {
+        resize(board._size);
+        System.arraycopy(board._spots, 0, _spots, 0, _spots.length);
+        System.arraycopy(board._sides, 0, _sides, 0, _sides.length);
+        _numSpots = board._numSpots;
+        System.arraycopy(board._sideCounts, 0, _sideCounts, 0,
+                         _sideCounts.length);
+    }
+
+    /**
+     * Make me an N x N board in the initial configuration.
+     */
+    void clear(int N) {
+        resize(N);
+        Arrays.fill(_spots, (byte) 1);
+        Arrays.fill(_sides, (byte) WHITE.ordinal());
+        recount();
+    }
+
+    /**
+     * Return the number of spots on square #N.
+     */
+    int spots(int n) {
+        return _spots[n];
+    }
+
+    /**
+     * Return the Side of square #N.
+     */
+    Side side(int n) {
+        return SIDES[_sides[n]];
+    }
+
+    /**
+     * Set square #N to hold SPOTS spots of SIDE.  A WHITE square must
+     * hold one spot.
+     */
+    void setSquare(int n, int spots, Side side) {
+        set(n, spots, side.ordinal());
+    }
+
+    /**
+     * Return the number of rows and of columns.
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Return the Side of the player to move (as for Board.whoseMove).
+     */
+    Side whoseMove() {
+        return ((_numSpots + _size) & 1) == 0 ? RED : BLUE;
+    }
+
+    /**
+     * Return the winner of the current position, or null if the game is
+     * not over.
+     */
+    Side winner() {
+        if (_sideCounts[RED.ordinal()] == _spots.length) {
+            return RED;
+        } else if (_sideCounts[BLUE.ordinal()] == _spots.length) {
+            return BLUE;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Return the number of squares of SIDE.
+     */
+    int numOfSide(Side side) {
+        return _sideCounts[side.ordinal()];
+    }
+
+    /**
+     * Return true iff the player to move may add a spot to square #N.
+     */
+    boolean isLegal(int n) {
+        return _sides[n] != whoseMove().opposite().ordinal();
+    }
+
+    /**
+     * Store the squares to which the player to move may add a spot in
+     * MOVES, in increasing order, and return their number.
+     */
+    int legalMoves(int[] moves) {
+        int opponent = whoseMove().opposite().ordinal();
+        int k;
+        k = 0;
+        for (int n = 0; n < _sides.length; n += 1) {
+            if (_sides[n] != opponent) {
+                moves[k] = n;
+                k += 1;
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Return a randomly chosen legal move for the player to move, using
+     * RANDOM as the source of randomness.  The choice is lightly guided:
+     * among a few legal squares sampled at random, one that starts a
+     * cascade is preferred.  Assumes the game is not over.
+     */
+    int randomMove(Random random) {
+        int opponent = whoseMove().opposite().ordinal();
+        int numSquares = _sides.length;
+        int first = -1;
+        for (int k = 0; k < SAMPLES; k += 1) {
+            int n;
+            do {
+                n = random.nextInt(numSquares);
+            } while (_sides[n] == opponent);
+            if (_spots[n] >= _adjacent[n].length) {
+                return n;
+            }
+            if (first == -1) {
+                first = n;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Add a spot for the player to move to square #N, and distribute the
+     * spots of any squares that become overfull, as for Board.addSpot.
+     * Assumes isLegal(N).
+     */
+    void play(int n) {
+        int player = whoseMove().ordinal();
+        set(n, _spots[n] + 1, player);
+        if (_spots[n] > _adjacent[n].length && winner() == null) {
+            jump(n, player);
+        }
+    }
+
+    /**
+     * Distribute the spots of overfull square S, which belongs to the
+     * player with ordinal PLAYER, and of any squares that become overfull
+     * as a result, in the same order as Board.jump.
+     */
+    private void jump(int S, int player) {
+        int depth = pushJump(S, player, 0);
+        while (depth > 0) {
+            int top = depth - 1;
+            int[] adjacent = _adjacent[_jumpSquares[top]];
+            if (_jumpNext[top] == adjacent.length) {
+                depth = top;
+                continue;
+            }
+            int nb = adjacent[_jumpNext[top]];
+            _jumpNext[top] += 1;
+            set(nb, _spots[nb] + 1, player);
+            if (_spots[nb] > _adjacent[nb].length && winner() == null) {
+                depth = pushJump(nb, player, depth);
+            }
+        }
+    }
+
+    /**
+     * Leave square S with one spot of PLAYER and push it on the jump
+     * stack, which holds DEPTH squares.  Returns the new depth.
+     */
+    private int pushJump(int S, int player, int depth) {
+        set(S, 1, player);
+        if (depth == _jumpSquares.length) {
+            _jumpSquares = Arrays.copyOf(_jumpSquares, 2 * depth);
+            _jumpNext = Arrays.copyOf(_jumpNext, 2 * depth);
+        }
+        _jumpSquares[depth] = S;
+        _jumpNext[depth] = 0;
+        return depth + 1;
+    }
+
+    /**
+     * Set square #N to hold SPOTS spots of the Side with ordinal SIDE.
+     */
+    private void set(int n, int spots, int side) {
+        _numSpots += spots - _spots[n];
+        _sideCounts[_sides[n]] -= 1;
+        _sideCounts[side] += 1;
+        _spots[n] = (byte) spots;
+        _sides[n] = (byte) side;
+    }
+
+    /**
+     * Make me an N x N board, with unspecified contents.
+     */
+    private void resize(int N) {
+        if (N != _size) {
+            _size = N;
+            _spots = new byte[N * N];
+            _sides = new byte[N * N];
+            _adjacent = Board.adjacencies(N);
+        }
+    }
+
+    /**
+     * Recompute the total spots and square counts from my contents.
+     */
+    private void recount() {
+        _numSpots = 0;
+        Arrays.fill(_sideCounts, 0);
+        for (int n = 0; n < _spots.length; n += 1) {
+            _numSpots += _spots[n];
+            _sideCounts[_sides[n]] += 1;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package jump61;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of PlayoutBoard, checking that it follows the same rules as
+ * Board.
+ *
+ * @author Aniketh Prasad
+ */
+public class PlayoutBoardTest {
+
+    /**
+     * Check that the squares, player to move, square counts, and winner
+     * of PLAYOUT are those of BOARD, after MOVES moves.
+     */
+    private static void checkSame(Board board, PlayoutBoard playout,
+                                  int moves) {
+        String where = "after " + moves + " moves on\n" + board;
+        for (int n = 0; n < board.size() * board.size(); n += 1) {
+            assertEquals(where, board.get(n).getSpots(), playout.spots(n));
+            assertEquals(where, board.get(n).getSide(), playout.side(n));
+        }
+        assertEquals(where, board.whoseMove(), playout.whoseMove());
+        assertEquals(where, board.numOfSide(Side.RED),
+                     playout.numOfSide(Side.RED));
+        assertEquals(where, board.numOfSide(Side.BLUE),
+                     playout.numOfSide(Side.BLUE));
+        assertEquals(where, board.getWinner(), playout.winner());
+    }
+
+    @Test
+    public void testRandomGames() {
+        Random random = new Random(61);
+        int[] legal = new int[Defaults.MAX_BOARD_SIZE
+                              * Defaults.MAX_BOARD_SIZE];
+        for (int game = 0; game < 100; game += 1) {
+            int N = 2 + game % 5;
+            Board board = new Board(N);
+            PlayoutBoard playout = new PlayoutBoard();
+            playout.clear(N);
+            checkSame(board, playout, 0);
+            int moves;
+            for (moves = 0; board.getWinner() == null; moves += 1) {
+                int numLegal = playout.legalMoves(legal);
+                for (int n = 0; n < N * N; n += 1) {
+                    assertEquals(board.isLegal(board.whoseMove(), n),
+                                 playout.isLegal(n));
+                }
+                int move = game % 2 == 0 ? legal[random.nextInt(numLegal)]
+                    : playout.randomMove(random);
+                assertTrue(board.isLegal(board.whoseMove(), move));
+                board.addSpot(board.whoseMove(), move);
+                playout.play(move);
+                checkSame(board, playout, moves + 1);
+            }
+            PlayoutBoard copy = new PlayoutBoard();
+            copy.copy(board);
+            checkSame(board, copy, moves);
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+package jump61;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * Statistics about the positions reached in recorded games, indexed by
+ * position hash (see Board.positionHash), read from a memory-mapped file
+ * built by PositionDatabaseBuilder.  For each position and each move
+ * played from it, the database holds the number of times the move was
+ * played and the numbers of those games won by Red and by Blue.
+ * <p>
+ * The file holds a HEADER_SIZE-byte header (MAGIC, VERSION, the number
+ * of entries, the number of entries per block, and the offset of the
+ * block index), then the entries, ENTRY_SIZE bytes each, sorted by hash
+ * and then move, then the block index: the hash of the first entry of
+ * each block.  A lookup searches the block index and then one block, so
+ * only the pages it touches are read.
+ *
+ * @author Aniketh Prasad
+ */
+class PositionDatabase {
+
+    /**
+     * Identifies a position database file ("J61P").
+     */
+    static final int MAGIC = 0x4a363150;
+    /**
+     * Version number of the file format.
+     */
+    static final int VERSION = 1;
+    /**
+     * Size of the file header in bytes.
+     */
+    static final int HEADER_SIZE = 32;
+    /**
+     * Size of an entry in bytes: hash (8 bytes), move, number of times
+     * played, and Red and Blue wins (4 bytes each).
+     */
+    static final int ENTRY_SIZE = 24;
+    /**
+     * Number of entries per block.
+     */
+    static final int BLOCK_SIZE = 256;
+    /**
+     * Number of entries mapped by each buffer (files may be larger than
+     * a single buffer can map).
+     */
+    private static final int SEGMENT_ENTRIES = 1 << 25;
+
+    /**
+     * The database in FILE, which is mapped read-only.  Throws
+     * IOException if FILE cannot be read or is not a position database.
+     */
+    PositionDatabase(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer header =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file + " is not a position database");
+            }
+            _numEntries = header.getLong();
+            int blockSize = header.getInt();
+            long indexOffset = header.getLong();
+            _numBlocks = (_numEntries + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            if (blockSize != BLOCK_SIZE
+                || indexOffset != HEADER_SIZE + _numEntries * ENTRY_SIZE
+                || channel.size() != indexOffset + _numBlocks * Long.BYTES) {
+                throw new IOException(file + " is damaged");
+            }
+            _index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset,
+                                 _numBlocks * Long.BYTES);
+            int numSegments =
+                (int) ((_numEntries + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES);
+            _segments = new ByteBuffer[numSegments];
+            for (int i = 0; i < numSegments; i += 1) {
+                long first = (long) i * SEGMENT_ENTRIES;
+                long size = Math.min(SEGMENT_ENTRIES, _numEntries - first);
+                _segments[i] =
+                    channel.map(FileChannel.MapMode.READ_ONLY,
+                                HEADER_SIZE + first * ENTRY_SIZE,
+                                size * ENTRY_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Return the number of entries (position-move pairs).
+     */
+    long size() {
+        return _numEntries;
+    }
+
+    /**
+     * Return the statistics for the position on BOARD, or null if it is
+     * not in the database.
+     */
+    Stats lookup(Board board) {
+        return lookup(board.positionHash());
+    }
+
+    /**
+     * Return the statistics for the position whose hash is HASH, or null
+     * if it is not in the database.
+     */
+    Stats lookup(long hash) {
+        long lo = 0, hi = _numBlocks;
+        while (hi - lo > 1) {
+            long mid = (lo + hi) >>> 1;
+            if (_index.getLong((int) (mid * Long.BYTES)) < hash) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        long e = lo * BLOCK_SIZE,
+            end = Math.min(_numEntries, e + BLOCK_SIZE + 1);
+        while (e < end) {
+            long mid = (e + end) >>> 1;
+            if (hash(mid) < hash) {
+                e = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+        if (e == _numEntries || hash(e) != hash) {
+            return null;
+        }
+        Stats stats = new Stats();
+        for (; e < _numEntries && hash(e) == hash; e += 1) {
+            ByteBuffer segment = segment(e);
+            int p = offset(e);
+            stats.add(segment.getInt(p + 8), segment.getInt(p + 12),
+                      segment.getInt(p + 16), segment.getInt(p + 20));
+        }
+        return stats;
+    }
+
+    /**
+     * Return the hash of entry #E.
+     */
+    private long hash(long e) {
+        return segment(e).getLong(offset(e));
+    }
+
+    /**
+     * Return the buffer holding entry #E.
+     */
+    private ByteBuffer segment(long e) {
+        return _segments[(int) (e / SEGMENT_ENTRIES)];
+    }
+
+    /**
+     * Return the offset of entry #E in its buffer.
+     */
+    private static int offset(long e) {
+        return (int) (e % SEGMENT_ENTRIES) * ENTRY_SIZE;
+    }
+
+    /**
+     * The statistics for one position.
+     */
+    static class Stats {
+
+        /**
+         * Add the statistics for MOVE, played VISITS times, in REDWINS
+         * games won by Red and BLUEWINS won by Blue.
+         */
+        void add(int move, int visits, int redWins, int blueWins) {
+            _moves.add(new int[] { move, visits, redWins, blueWins });
+            _visits += visits;
+            _redWins += redWins;
+            _blueWins += blueWins;
+        }
+
+        /**
+         * Return the number of times the position was reached (and a move
+         * made from it).
+         */
+        long visits() {
+            return _visits;
+        }
+
+        /**
+         * Return the number of games through the position won by
+         * WINNER.
+         */
+        long wins(Side winner) {
+            return winner == Side.RED ? _redWins : _blueWins;
+        }
+
+        /**
+         * Return the number of different moves played.
+         */
+        int numMoves() {
+            return _moves.size();
+        }
+
+        /**
+         * Return the Kth move played (in order of square number).
+         */
+        int move(int k) {
+            return _moves.get(k)[0];
+        }
+
+        /**
+         * Return the number of times the Kth move was played.
+         */
+        int visits(int k) {
+            return _moves.get(k)[1];
+        }
+
+        /**
+         * Return the number of games in which the Kth move was played
+         * that WINNER won.
+         */
+        int wins(int k, Side winner) {
+            return _moves.get(k)[winner == Side.RED ? 2 : 3];
+        }
+
+        /**
+         * The moves: each is square number, visits, Red wins, and Blue
+         * wins.
+         */
+        private final ArrayList<int[]> _moves = new ArrayList<>();
+        /**
+         * Totals over all moves.
+         */
+        private long _visits, _redWins, _blueWins;
+    }
+
+    /**
+     * Number of entries.
+     */
+    private final long _numEntries;
+    /**
+     * Number of blocks.
+     */
+    private final long _numBlocks;
+    /**
+     * The hash of the first entry of each block.
+     */
+    private final ByteBuffer _index;
+    /**
+     * The entries, SEGMENT_ENTRIES per buffer.
+     */
+    private final ByteBuffer[] _segments;
+
+}
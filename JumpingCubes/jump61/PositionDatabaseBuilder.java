@@ -0,0 +1,379 @@
+package jump61;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import static jump61.PositionDatabase.*;
+
+/**
+ * Builds a PositionDatabase from game records.  Games are replayed one at
+ * a time, and each move made is noted, with its position's hash and the
+ * game's winner, in a buffer.  When the buffer fills, its notes are
+ * sorted, combined into entries, and written to a temporary file (a
+ * run).  Finally the runs are merged into the database file, so that
+ * the number of records that can be processed is not limited by the
+ * heap.
+ *
+ * @author Aniketh Prasad
+ */
+class PositionDatabaseBuilder {
+
+    /**
+     * A builder that holds up to RUNSIZE notes in memory before writing a
+     * run.
+     */
+    PositionDatabaseBuilder(int runSize) {
+        _notes = new long[2 * runSize];
+    }
+
+    /**
+     * Add the positions and moves of all games recorded in FILE (see
+     * GameRecordReader).
+     */
+    void addRecords(File file) throws IOException {
+        GameRecord record = new GameRecord();
+        try (GameRecordReader in = new GameRecordReader(file)) {
+            while (in.next(record)) {
+                add(record);
+            }
+        }
+    }
+
+    /**
+     * Add the positions and moves of the game recorded in RECORD.
+     */
+    void add(GameRecord record) throws IOException {
+        Side winner = record.winner();
+        int result = winner == null ? Side.WHITE.ordinal() : winner.ordinal();
+        _board.clear(record.size());
+        for (int k = 0; k < record.numMoves(); k += 1) {
+            int move = record.move(k);
+            Side player = _board.whoseMove();
+            if (_board.getWinner() != null || move >= _board.size()
+                * _board.size() || !_board.isLegal(player, move)) {
+                throw new IOException("invalid move in game record");
+            }
+            if (_numNotes == _notes.length) {
+                writeRun();
+            }
+            _notes[_numNotes] = _board.positionHash();
+            _notes[_numNotes + 1] = (long) move << 2 | result;
+            _numNotes += 2;
+            _board.addSpot(player, move);
+        }
+    }
+
+    /**
+     * Write the database of all positions added to FILE, and delete the
+     * temporary files.  Returns the number of entries written.
+     */
+    long write(File file) throws IOException {
+        writeRun();
+        ArrayList<Run> runs = new ArrayList<>();
+        PriorityQueue<Run> queue = new PriorityQueue<>();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(
+                    new FileOutputStream(out.getFD()), 1 << 16));
+            data.write(new byte[HEADER_SIZE]);
+            for (File f : _runs) {
+                Run run = new Run(f);
+                runs.add(run);
+                if (run.next()) {
+                    queue.add(run);
+                }
+            }
+            Entry entry = new Entry();
+            long numEntries = 0;
+            long[] index = new long[16];
+            int numBlocks = 0;
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                entry.set(run._entry);
+                if (run.next()) {
+                    queue.add(run);
+                }
+                while (!queue.isEmpty()
+                       && queue.peek()._entry.sameKey(entry)) {
+                    run = queue.poll();
+                    entry.combine(run._entry);
+                    if (run.next()) {
+                        queue.add(run);
+                    }
+                }
+                if (numEntries % BLOCK_SIZE == 0) {
+                    if (numBlocks == index.length) {
+                        index = Arrays.copyOf(index, 2 * numBlocks);
+                    }
+                    index[numBlocks] = entry._hash;
+                    numBlocks += 1;
+                }
+                entry.write(data);
+                numEntries += 1;
+            }
+            for (int b = 0; b < numBlocks; b += 1) {
+                data.writeLong(index[b]);
+            }
+            data.flush();
+            out.seek(0);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(numEntries);
+            out.writeInt(BLOCK_SIZE);
+            out.writeLong(HEADER_SIZE + numEntries * ENTRY_SIZE);
+            return numEntries;
+        } finally {
+            for (Run run : runs) {
+                run.close();
+            }
+            for (File f : _runs) {
+                f.delete();
+            }
+            _runs.clear();
+        }
+    }
+
+    /**
+     * Sort the notes in the buffer, and write them, combined into
+     * entries, to a new run file.  Empties the buffer.
+     */
+    private void writeRun() throws IOException {
+        if (_numNotes == 0) {
+            return;
+        }
+        sortPairs(_notes, 0, _numNotes / 2 - 1);
+        File file = File.createTempFile("jump61-positions", ".run");
+        file.deleteOnExit();
+        _runs.add(file);
+        Entry entry = new Entry(), next = new Entry();
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(file),
+                                          1 << 16))) {
+            entry.setNote(_notes[0], _notes[1]);
+            for (int i = 2; i < _numNotes; i += 2) {
+                next.setNote(_notes[i], _notes[i + 1]);
+                if (next.sameKey(entry)) {
+                    entry.combine(next);
+                } else {
+                    entry.write(out);
+                    entry.set(next);
+                }
+            }
+            entry.write(out);
+        }
+        _numNotes = 0;
+    }
+
+    /**
+     * Sort the pairs A[2 * LO], A[2 * LO + 1] through A[2 * HI],
+     * A[2 * HI + 1] of A into ascending order of their first and then
+     * their second elements.
+     */
+    private static void sortPairs(long[] a, int lo, int hi) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long pivot0 = a[2 * mid], pivot1 = a[2 * mid + 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (comparePair(a, i, pivot0, pivot1) < 0) {
+                    i += 1;
+                }
+                while (comparePair(a, j, pivot0, pivot1) > 0) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    long t0 = a[2 * i], t1 = a[2 * i + 1];
+                    a[2 * i] = a[2 * j];
+                    a[2 * i + 1] = a[2 * j + 1];
+                    a[2 * j] = t0;
+                    a[2 * j + 1] = t1;
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (j - lo < hi - i) {
+                sortPairs(a, lo, j);
+                lo = i;
+            } else {
+                sortPairs(a, i, hi);
+                hi = j;
+            }
+        }
+    }
+
+    /**
+     * Return a negative, zero, or positive value as the pair A[2 * I],
+     * A[2 * I + 1] is less than, equal to, or greater than the pair
+     * X0, X1.
+     */
+    private static int comparePair(long[] a, int i, long x0, long x1) {
+        int c = Long.compare(a[2 * i], x0);
+        return c != 0 ? c : Long.compare(a[2 * i + 1], x1);
+    }
+
+    /**
+     * One entry of a database: a position hash, a move, and the numbers
+     * of times it was played and of those games won by each side.
+     */
+    private static class Entry {
+
+        /**
+         * Set me to the entry for a single note: a move from the position
+         * whose hash is HASH, described by MOVEANDRESULT (the move shifted
+         * left two bits, ored with the ordinal of the winner).
+         */
+        void setNote(long hash, long moveAndResult) {
+            _hash = hash;
+            _move = (int) (moveAndResult >>> 2);
+            _visits = 1;
+            int result = (int) (moveAndResult & 3);
+            _redWins = result == Side.RED.ordinal() ? 1 : 0;
+            _blueWins = result == Side.BLUE.ordinal() ? 1 : 0;
+        }
+
+        /**
+         * Set me to a copy of ENTRY.
+         */
+        void set(Entry entry) {
+            _hash = entry._hash;
+            _move = entry._move;
+            _visits = entry._visits;
+            _redWins = entry._redWins;
+            _blueWins = entry._blueWins;
+        }
+
+        /**
+         * Return true iff ENTRY is for the same position and move as me.
+         */
+        boolean sameKey(Entry entry) {
+            return _hash == entry._hash && _move == entry._move;
+        }
+
+        /**
+         * Add the counts of ENTRY, which has the same key, to mine.
+         */
+        void combine(Entry entry) {
+            _visits += entry._visits;
+            _redWins += entry._redWins;
+            _blueWins += entry._blueWins;
+        }
+
+        /**
+         * Write me to OUT in the format of a database entry.
+         */
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(_hash);
+            out.writeInt(_move);
+            out.writeInt(_visits);
+            out.writeInt(_redWins);
+            out.writeInt(_blueWins);
+        }
+
+        /**
+         * Set me to the entry read from IN, returning false if IN is at
+         * its end.
+         */
+        boolean read(DataInputStream in) throws IOException {
+            try {
+                _hash = in.readLong();
+            } catch (EOFException excp) {
+                return false;
+            }
+            _move = in.readInt();
+            _visits = in.readInt();
+            _redWins = in.readInt();
+            _blueWins = in.readInt();
+            return true;
+        }
+
+        /**
+         * Position hash.
+         */
+        private long _hash;
+        /**
+         * The move, as a square number.
+         */
+        private int _move;
+        /**
+         * Counts of games in which the move was played, and of those
+         * won by each side.
+         */
+        private int _visits, _redWins, _blueWins;
+    }
+
+    /**
+     * A run being merged, positioned at its next entry.  Runs are ordered
+     * by their next entries.
+     */
+    private static class Run implements Comparable<Run> {
+
+        /**
+         * A run read from FILE.
+         */
+        Run(File file) throws IOException {
+            _in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        }
+
+        /**
+         * Advance to my next entry, returning false if there is none.
+         */
+        boolean next() throws IOException {
+            return _entry.read(_in);
+        }
+
+        /**
+         * Close my file.
+         */
+        void close() throws IOException {
+            _in.close();
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            int c = Long.compare(_entry._hash, other._entry._hash);
+            return c != 0 ? c : Integer.compare(_entry._move,
+                                                other._entry._move);
+        }
+
+        /**
+         * My file.
+         */
+        private final DataInputStream _in;
+        /**
+         * My next entry.
+         */
+        private final Entry _entry = new Entry();
+    }
+
+    /**
+     * Notes of moves not yet written to a run, in pairs: a position hash
+     * and the move and game result, as for Entry.setNote.
+     */
+    private final long[] _notes;
+    /**
+     * Number of valid elements of _notes.
+     */
+    private int _numNotes;
+    /**
+     * The run files written so far.
+     */
+    private final ArrayList<File> _runs = new ArrayList<>();
+    /**
+     * The board on which games are replayed.
+     */
+    private final Board _board = new Board(Defaults.BOARD_SIZE);
+
+}
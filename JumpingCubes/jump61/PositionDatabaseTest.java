@@ -0,0 +1,122 @@
+package jump61;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of PositionDatabase and PositionDatabaseBuilder.
+ *
+ * @author Aniketh Prasad
+ */
+public class PositionDatabaseTest {
+
+    /**
+     * Add the moves of RECORD to TALLY, which maps each position hash to
+     * a map from each move to its numbers of visits, Red wins, and Blue
+     * wins.
+     */
+    private static void tally(GameRecord record,
+                              Map<Long, TreeMap<Integer, int[]>> tally) {
+        Board B = new Board(record.size());
+        for (int k = 0; k < record.numMoves(); k += 1) {
+            int move = record.move(k);
+            int[] counts = tally.computeIfAbsent(B.positionHash(),
+                                                 (h) -> new TreeMap<>())
+                .computeIfAbsent(move, (m) -> new int[3]);
+            counts[0] += 1;
+            if (record.winner() == Side.RED) {
+                counts[1] += 1;
+            } else if (record.winner() == Side.BLUE) {
+                counts[2] += 1;
+            }
+            B.addSpot(B.whoseMove(), move);
+        }
+    }
+
+    /**
+     * Check that the statistics for HASH in DB are those in TALLY.
+     */
+    private static void check(PositionDatabase db, long hash,
+                              Map<Long, TreeMap<Integer, int[]>> tally) {
+        PositionDatabase.Stats stats = db.lookup(hash);
+        TreeMap<Integer, int[]> moves = tally.get(hash);
+        if (moves == null) {
+            assertTrue("found absent hash " + hash, stats == null);
+            return;
+        }
+        assertTrue("missing hash " + hash, stats != null);
+        assertEquals(moves.size(), stats.numMoves());
+        long visits, redWins, blueWins;
+        visits = redWins = blueWins = 0;
+        int k;
+        k = 0;
+        for (Map.Entry<Integer, int[]> move : moves.entrySet()) {
+            int[] counts = move.getValue();
+            assertEquals((int) move.getKey(), stats.move(k));
+            assertEquals(counts[0], stats.visits(k));
+            assertEquals(counts[1], stats.wins(k, Side.RED));
+            assertEquals(counts[2], stats.wins(k, Side.BLUE));
+            visits += counts[0];
+            redWins += counts[1];
+            blueWins += counts[2];
+            k += 1;
+        }
+        assertEquals(visits, stats.visits());
+        assertEquals(redWins, stats.wins(Side.RED));
+        assertEquals(blueWins, stats.wins(Side.BLUE));
+    }
+
+    @Test
+    public void testBuildAndLookup() throws IOException {
+        Random random = new Random(61);
+        PositionDatabaseBuilder builder = new PositionDatabaseBuilder(100);
+        TreeMap<Long, TreeMap<Integer, int[]>> tally = new TreeMap<>();
+        int games = 300;
+        for (int i = 0; i < games; i += 1) {
+            GameRecord record =
+                GameRecordTest.play(3, i % 10 == 0 ? 5 : 1000, random);
+            builder.add(record);
+            tally(record, tally);
+        }
+        File file = File.createTempFile("jump61", ".pdb");
+        file.deleteOnExit();
+        long entries = builder.write(file);
+        PositionDatabase db = new PositionDatabase(file);
+        assertEquals(entries, db.size());
+
+        ArrayList<Long> straddlers = new ArrayList<>();
+        long first = 0;
+        for (Map.Entry<Long, TreeMap<Integer, int[]>> pos
+                 : tally.entrySet()) {
+            long last = first + pos.getValue().size() - 1;
+            if (first / PositionDatabase.BLOCK_SIZE
+                != last / PositionDatabase.BLOCK_SIZE) {
+                straddlers.add(pos.getKey());
+            }
+            check(db, pos.getKey(), tally);
+            first = last + 1;
+        }
+        assertEquals(first, db.size());
+        assertTrue("no position straddles a block", !straddlers.isEmpty());
+        for (long hash : straddlers) {
+            check(db, hash - 1, tally);
+            check(db, hash + 1, tally);
+        }
+        check(db, Long.MIN_VALUE, tally);
+        check(db, Long.MAX_VALUE, tally);
+        assertFalse(tally.containsKey(tally.firstKey() - 1));
+        assertNull(db.lookup(tally.firstKey() - 1));
+
+        PositionDatabase.Stats initial = db.lookup(new Board(3));
+        assertEquals(games, initial.visits());
+    }
+
+}
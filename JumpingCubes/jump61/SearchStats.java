@@ -0,0 +1,198 @@
+package jump61;
+
+/**
+ * Statistics about how an automated player chose one move: where the
+ * move came from, and, for a search, how deep it went, how many
+ * positions it visited, how often it cut off the search of a position
+ * early, how often it found a position in its transposition table, and
+ * how long it took.  Rendered by toString as a single line of KEY=VALUE
+ * pairs, suitable for logging one per move.
+ *
+ * @author Aniketh Prasad
+ */
+class SearchStats {
+
+    /**
+     * Reset all statistics, for a move chosen from SOURCE (such as
+     * "search" or "book").
+     */
+    void clear(String source) {
+        _source = source;
+        _player = null;
+        _move = -1;
+        _depth = 0;
+        _nodes = _cutoffs = _probes = _hits = 0;
+        _nanos = 0;
+    }
+
+    /**
+     * Record that the move chosen came from SOURCE.
+     */
+    void setSource(String source) {
+        _source = source;
+    }
+
+    /**
+     * Record that PLAYER chose to move to square #MOVE after NANOS
+     * nanoseconds.
+     */
+    void finish(Side player, int move, long nanos) {
+        _player = player;
+        _move = move;
+        _nanos = nanos;
+    }
+
+    /**
+     * Record that the deepest completed search iteration was to DEPTH.
+     */
+    void setDepth(int depth) {
+        _depth = depth;
+    }
+
+    /**
+     * Count N more positions searched.
+     */
+    void addNodes(long n) {
+        _nodes += n;
+    }
+
+    /**
+     * Count one more cutoff: a position whose remaining moves were
+     * skipped because one move was good enough.
+     */
+    void cutoff() {
+        _cutoffs += 1;
+    }
+
+    /**
+     * Count one more probe of the transposition table, and one more hit
+     * iff HIT.
+     */
+    void probe(boolean hit) {
+        _probes += 1;
+        if (hit) {
+            _hits += 1;
+        }
+    }
+
+    /**
+     * Add the counts of positions, cutoffs, and probes in OTHER (from a
+     * helper search of the same move) to mine.
+     */
+    void add(SearchStats other) {
+        _nodes += other._nodes;
+        _cutoffs += other._cutoffs;
+        _probes += other._probes;
+        _hits += other._hits;
+    }
+
+    /**
+     * Return where the move came from.
+     */
+    String source() {
+        return _source;
+    }
+
+    /**
+     * Return the move chosen, as a square number, or -1 if none.
+     */
+    int move() {
+        return _move;
+    }
+
+    /**
+     * Return the depth of the deepest completed search iteration.
+     */
+    int depth() {
+        return _depth;
+    }
+
+    /**
+     * Return the number of positions searched.
+     */
+    long nodes() {
+        return _nodes;
+    }
+
+    /**
+     * Return the number of cutoffs.
+     */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /**
+     * Return the number of transposition-table probes.
+     */
+    long probes() {
+        return _probes;
+    }
+
+    /**
+     * Return the number of transposition-table probes that found an
+     * entry.
+     */
+    long hits() {
+        return _hits;
+    }
+
+    /**
+     * Return the time taken to choose the move, in nanoseconds.
+     */
+    long nanos() {
+        return _nanos;
+    }
+
+    /**
+     * Return the number of positions searched per second.
+     */
+    double nodesPerSecond() {
+        return _nanos == 0 ? 0.0 : _nodes * 1e9 / _nanos;
+    }
+
+    /**
+     * Return the fraction of transposition-table probes that found an
+     * entry.
+     */
+    double hitRate() {
+        return _probes == 0 ? 0.0 : (double) _hits / _probes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("player=%s move=%d source=%s depth=%d nodes=%d"
+                             + " time_ms=%.3f nps=%.0f cutoffs=%d"
+                             + " tt_probes=%d tt_hits=%d tt_hit_rate=%.3f",
+                             _player == null ? "-" : _player.toString(),
+                             _move, _source, _depth, _nodes, _nanos / 1e6,
+                             nodesPerSecond(), _cutoffs, _probes, _hits,
+                             hitRate());
+    }
+
+    /**
+     * Where the move came from.
+     */
+    private String _source;
+    /**
+     * The player that chose the move, or null if not yet chosen.
+     */
+    private Side _player;
+    /**
+     * The move chosen, or -1.
+     */
+    private int _move;
+    /**
+     * Depth of the deepest completed search iteration.
+     */
+    private int _depth;
+    /**
+     * Numbers of positions searched, cutoffs, transposition-table
+     * probes, and probes that found an entry.
+     */
+    private long _nodes, _cutoffs, _probes, _hits;
+    /**
+     * Time taken, in nanoseconds.
+     */
+    private long _nanos;
+
+}
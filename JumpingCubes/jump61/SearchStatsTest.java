@@ -0,0 +1,78 @@
+package jump61;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of SearchStats and of the statistics kept by AIs.
+ *
+ * @author Aniketh Prasad
+ */
+public class SearchStatsTest {
+
+    @Test
+    public void testCounts() {
+        SearchStats stats = new SearchStats(), helper = new SearchStats();
+        stats.clear("search");
+        helper.clear("search");
+        stats.addNodes(300);
+        stats.cutoff();
+        stats.probe(true);
+        stats.probe(false);
+        helper.addNodes(100);
+        helper.cutoff();
+        helper.probe(true);
+        helper.probe(true);
+        stats.add(helper);
+        stats.setDepth(5);
+        stats.finish(Side.BLUE, 7, 2000000);
+
+        assertEquals("search", stats.source());
+        assertEquals(7, stats.move());
+        assertEquals(5, stats.depth());
+        assertEquals(400, stats.nodes());
+        assertEquals(2, stats.cutoffs());
+        assertEquals(4, stats.probes());
+        assertEquals(3, stats.hits());
+        assertEquals(2000000, stats.nanos());
+        assertEquals(0.75, stats.hitRate(), 1e-9);
+        assertEquals(200000.0, stats.nodesPerSecond(), 1e-6);
+        assertEquals("player=blue move=7 source=search depth=5 nodes=400"
+                     + " time_ms=2.000 nps=200000 cutoffs=2 tt_probes=4"
+                     + " tt_hits=3 tt_hit_rate=0.750", stats.toString());
+
+        stats.clear("book");
+        assertEquals("book", stats.source());
+        assertEquals(-1, stats.move());
+        assertEquals(0, stats.depth());
+        assertEquals(0, stats.nodes());
+        assertEquals(0, stats.probes());
+        assertEquals(0.0, stats.hitRate(), 0.0);
+        assertEquals(0.0, stats.nodesPerSecond(), 0.0);
+        assertTrue(stats.toString().startsWith("player=- move=-1 "));
+    }
+
+    @Test
+    public void testLastStats() {
+        Game game = new Game((prompt) -> null, (board) -> { },
+                             new TextReporter(), false);
+        game.setSize(4);
+        game.setNodeLimit(5000);
+        game.setThreads(2);
+        AI ai = new AI(game, Side.RED, 0);
+        try {
+            int move = ai.chooseMove();
+            SearchStats stats = ai.lastStats();
+            assertEquals(move, stats.move());
+            assertEquals("search", stats.source());
+            assertTrue(stats.depth() > 0);
+            assertTrue(stats.nodes() > 0);
+            assertTrue(stats.hits() <= stats.probes());
+            assertTrue(stats.nanos() > 0);
+        } finally {
+            ai.retire();
+        }
+    }
+
+}
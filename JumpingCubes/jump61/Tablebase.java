@@ -0,0 +1,209 @@
+package jump61;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static jump61.Side.*;
+
+/**
+ * A table of the exact values of all positions reachable in play on a
+ * small board, as computed by TablebaseSolver, read from a memory-mapped
+ * file.
+ * <p>
+ * Each position in which the game is not over is given an index by
+ * treating each square as a digit in a mixed-radix number: a square
+ * with K neighbors has 2K + 1 possible contents (white, or 1 to K red or
+ * blue spots), and square #0 is the least significant digit.  The file
+ * holds a HEADER_SIZE-byte header followed by one byte per index: 0 for
+ * a position that is unreachable (or was not solved), D > 0 if the
+ * player to move can win in D moves (counting both sides' moves), and
+ * -D if the player to move will lose in D moves against best play.
+ *
+ * @author Aniketh Prasad
+ */
+class Tablebase {
+
+    /**
+     * Identifies a tablebase file ("J61T").
+     */
+    static final int MAGIC = 0x4a363154;
+    /**
+     * Version number of the file format.
+     */
+    static final int VERSION = 1;
+    /**
+     * Size of the file header in bytes: MAGIC, VERSION, board size, and
+     * number of entries, padded.
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * The tablebase in FILE, which is mapped read-only.  Throws
+     * IOException if FILE cannot be read or is not a tablebase.
+     */
+    Tablebase(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer header =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file + " is not a tablebase");
+            }
+            _size = header.getInt();
+            long entries = header.getLong();
+            _weights = weights(_size);
+            if (entries != numEntries(_size)
+                || channel.size() != HEADER_SIZE + entries) {
+                throw new IOException(file + " is damaged");
+            }
+            _values = channel.map(FileChannel.MapMode.READ_ONLY,
+                                  HEADER_SIZE, entries);
+        }
+    }
+
+    /**
+     * Return the name of the tablebase file for N x N boards.
+     */
+    static String fileName(int N) {
+        return String.format("jump61-%dx%d.tb", N, N);
+    }
+
+    /**
+     * Return the size of the boards I cover.
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Return my value for the position on BOARD (see the class comment),
+     * or 0 if it is unknown, including when BOARD is not of the size I
+     * cover or the game on it is over.
+     */
+    int probe(Board board) {
+        if (board.size() != _size || board.getWinner() != null) {
+            return 0;
+        }
+        long index = 0;
+        for (int n = 0; n < _weights.length; n += 1) {
+            Square sq = board.get(n);
+            int digit = digit(sq.getSide(), sq.getSpots(),
+                              board.neighbors(n));
+            if (digit < 0) {
+                return 0;
+            }
+            index += digit * _weights[n];
+        }
+        return _values.get((int) index);
+    }
+
+    /**
+     * Return the index of the position on BOARD, whose squares have
+     * place values WEIGHTS (see weights), or -1 if some square holds
+     * more spots than it has neighbors.
+     */
+    static long index(PlayoutBoard board, long[] weights) {
+        long index = 0;
+        int N = board.size();
+        for (int n = 0; n < weights.length; n += 1) {
+            int digit = digit(board.side(n), board.spots(n),
+                              neighbors(n, N));
+            if (digit < 0) {
+                return -1;
+            }
+            index += digit * weights[n];
+        }
+        return index;
+    }
+
+    /**
+     * Set BOARD, an N x N board where N is the size corresponding to
+     * WEIGHTS (see weights), to the position with index INDEX.
+     */
+    static void decode(long index, long[] weights, PlayoutBoard board) {
+        int N = board.size();
+        for (int n = 0; n < weights.length; n += 1) {
+            int k = neighbors(n, N);
+            int digit = (int) (index % (2 * k + 1));
+            index /= 2 * k + 1;
+            if (digit == 0) {
+                board.setSquare(n, 1, WHITE);
+            } else if (digit <= k) {
+                board.setSquare(n, digit, RED);
+            } else {
+                board.setSquare(n, digit - k, BLUE);
+            }
+        }
+    }
+
+    /**
+     * Return the place values of the squares of an N x N board in
+     * position indices.
+     */
+    static long[] weights(int N) {
+        long[] weights = new long[N * N];
+        long weight = 1;
+        for (int n = 0; n < weights.length; n += 1) {
+            weights[n] = weight;
+            weight *= 2 * neighbors(n, N) + 1;
+        }
+        return weights;
+    }
+
+    /**
+     * Return the number of position indices for an N x N board, or -1 if
+     * there are more than fit in a tablebase file.
+     */
+    static long numEntries(int N) {
+        double entries = 1;
+        long result = 1;
+        for (int n = 0; n < N * N; n += 1) {
+            entries *= 2 * neighbors(n, N) + 1;
+            result *= 2 * neighbors(n, N) + 1;
+        }
+        return entries > Integer.MAX_VALUE ? -1 : result;
+    }
+
+    /**
+     * Return the digit representing a square with SPOTS spots of SIDE and
+     * K neighbors in a position index, or -1 if there is none.
+     */
+    private static int digit(Side side, int spots, int k) {
+        if (spots > k) {
+            return -1;
+        } else if (side == WHITE) {
+            return 0;
+        } else if (side == RED) {
+            return spots;
+        } else {
+            return k + spots;
+        }
+    }
+
+    /**
+     * Return the number of neighbors of square #S on an N x N board.
+     */
+    private static int neighbors(int s, int N) {
+        int r = s / N, c = s % N;
+        return (r > 0 ? 1 : 0) + (r < N - 1 ? 1 : 0)
+            + (c > 0 ? 1 : 0) + (c < N - 1 ? 1 : 0);
+    }
+
+    /**
+     * The size of the boards I cover.
+     */
+    private final int _size;
+    /**
+     * Place values of the squares in position indices.
+     */
+    private final long[] _weights;
+    /**
+     * The values of all positions, indexed by position index.
+     */
+    private final ByteBuffer _values;
+
+}
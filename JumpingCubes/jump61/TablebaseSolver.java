@@ -0,0 +1,587 @@
+package jump61;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static jump61.Utils.debug;
+
+/**
+ * Computes a Tablebase for a small board by retrograde analysis.
+ * <p>
+ * Every move adds one spot to the board, and cascades only move spots
+ * around, so the positions reachable from the initial one fall into
+ * layers by total number of spots, and every move leads from one layer
+ * to the next.  The solver first enumerates the layers forward from the
+ * initial position, then labels them backward, from the last layer to
+ * the first: a position's value follows from those of its successors,
+ * which lie in the layer already labeled (or end the game).  Both passes
+ * split each layer among several threads, reading it in chunks of at
+ * most a given number of positions.  The successors of each chunk are
+ * sorted into runs that go to temporary files once their total exceeds
+ * that limit, and the runs are merged into the next layer, which itself
+ * goes to a temporary file if it is larger than the limit.  So only a
+ * few times the limit of positions are on the heap at once, whatever
+ * the size of the board.  The table itself is written directly to a
+ * memory-mapped output file.
+ *
+ * @author Aniketh Prasad
+ */
+class TablebaseSolver {
+
+    /**
+     * A solver for N x N boards that uses THREADS threads and reads
+     * layers in chunks of LAYERLIMIT positions, keeping larger layers and
+     * runs of successors on disk (see the class comment).
+     */
+    TablebaseSolver(int N, int threads, int layerLimit) {
+        if (Tablebase.numEntries(N) < 0) {
+            throw GameException.error("%dx%d boards are too large for a "
+                                      + "tablebase", N, N);
+        }
+        if (layerLimit < 1) {
+            throw GameException.error("layer limit must be positive");
+        }
+        _size = N;
+        _threads = threads;
+        _layerLimit = layerLimit;
+        _weights = Tablebase.weights(N);
+    }
+
+    /**
+     * Solve all positions reachable on my boards, and write the resulting
+     * tablebase to OUT.  Returns the number of positions solved.
+     */
+    long solve(File out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        ArrayList<Layer> layers = new ArrayList<>();
+        try {
+            enumerate(pool, layers);
+            long entries = Tablebase.numEntries(_size);
+            try (RandomAccessFile file = new RandomAccessFile(out, "rw")) {
+                file.setLength(0);
+                file.setLength(Tablebase.HEADER_SIZE + entries);
+                FileChannel channel = file.getChannel();
+                ByteBuffer header =
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                Tablebase.HEADER_SIZE);
+                header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION)
+                    .putInt(_size).putLong(entries);
+                ByteBuffer values =
+                    channel.map(FileChannel.MapMode.READ_WRITE,
+                                Tablebase.HEADER_SIZE, entries);
+                long solved = 0;
+                for (int i = layers.size() - 1; i >= 0; i -= 1) {
+                    Layer layer = layers.get(i);
+                    label(pool, layer, values);
+                    layer.delete();
+                    solved += layer.size();
+                    debug(1, "labeled layer %d (%d positions)", i,
+                          layer.size());
+                }
+                return solved;
+            }
+        } finally {
+            pool.shutdownNow();
+            for (Layer layer : layers) {
+                layer.delete();
+            }
+        }
+    }
+
+    /**
+     * Add to LAYERS the layers of positions (by index) reachable from the
+     * initial position in which the game is not over, in order of
+     * increasing spot count, using POOL to generate successors.
+     */
+    private void enumerate(ExecutorService pool, ArrayList<Layer> layers)
+        throws IOException {
+        PlayoutBoard board = new PlayoutBoard();
+        board.clear(_size);
+        Layer layer = new Layer(_layerLimit);
+        layer.add(Tablebase.index(board, _weights));
+        layer.finish();
+        while (layer.size() > 0) {
+            layers.add(layer);
+            debug(1, "enumerated layer %d (%d positions)",
+                  layers.size() - 1, layer.size());
+            layer = successors(pool, layer);
+        }
+        layer.delete();
+    }
+
+    /**
+     * Return the layer of sorted, distinct indices of the positions in
+     * which the game is not over that are reached by one move from the
+     * positions in LAYER, using POOL.  LAYER is read in chunks of at most
+     * my layer limit, each divided among my threads, which sort their
+     * successors into runs.  The runs are held on the heap until they
+     * total more than my layer limit, after which each goes to its own
+     * temporary file, and they are then merged into the result.
+     */
+    private Layer successors(ExecutorService pool, Layer layer)
+        throws IOException {
+        ArrayList<Layer> runs = new ArrayList<>();
+        AtomicInteger heapBudget = new AtomicInteger(_layerLimit);
+        try {
+            long[] chunk = new long[Math.min(layer.size(), _layerLimit)];
+            try (Layer.Reader in = layer.reader()) {
+                int n;
+                while ((n = in.read(chunk)) > 0) {
+                    ArrayList<Future<ArrayList<Layer>>> parts =
+                        new ArrayList<>();
+                    for (int t = 0; t < _threads; t += 1) {
+                        int lo = part(n, t), hi = part(n, t + 1);
+                        parts.add(pool.submit(() ->
+                            successors(chunk, lo, hi, heapBudget)));
+                    }
+                    for (Future<ArrayList<Layer>> part : parts) {
+                        runs.addAll(get(part));
+                    }
+                }
+            }
+            return merge(runs);
+        } finally {
+            for (Layer run : runs) {
+                run.delete();
+            }
+        }
+    }
+
+    /**
+     * Return sorted runs, without duplicates, of the indices of the
+     * positions in which the game is not over that are reached by one
+     * move from those at CHUNK[LO .. HI-1].  Each run is charged against
+     * HEAPBUDGET, and goes to a temporary file if the budget is
+     * exhausted.
+     */
+    private ArrayList<Layer> successors(long[] chunk, int lo, int hi,
+                                        AtomicInteger heapBudget)
+        throws IOException {
+        PlayoutBoard position = new PlayoutBoard(), next = new PlayoutBoard();
+        position.clear(_size);
+        int[] moves = new int[_size * _size];
+        long[] buffer =
+            new long[Math.max(moves.length, _layerLimit / _threads)];
+        ArrayList<Layer> runs = new ArrayList<>();
+        int k;
+        k = 0;
+        for (int i = lo; i < hi; i += 1) {
+            if (k + moves.length > buffer.length) {
+                runs.add(run(buffer, k, heapBudget));
+                k = 0;
+            }
+            Tablebase.decode(chunk[i], _weights, position);
+            int numMoves = position.legalMoves(moves);
+            for (int j = 0; j < numMoves; j += 1) {
+                next.copy(position);
+                next.play(moves[j]);
+                if (next.winner() == null) {
+                    buffer[k] = Tablebase.index(next, _weights);
+                    k += 1;
+                }
+            }
+        }
+        if (k > 0) {
+            runs.add(run(buffer, k, heapBudget));
+        }
+        return runs;
+    }
+
+    /**
+     * Sort BUFFER[0 .. N-1] and return its distinct values as a run, which
+     * is kept on the heap if HEAPBUDGET allows and otherwise goes to a
+     * temporary file.
+     */
+    private static Layer run(long[] buffer, int n, AtomicInteger heapBudget)
+        throws IOException {
+        Arrays.sort(buffer, 0, n);
+        int k;
+        k = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (k == 0 || buffer[i] != buffer[k - 1]) {
+                buffer[k] = buffer[i];
+                k += 1;
+            }
+        }
+        return new Layer(buffer, k, heapBudget.addAndGet(-k) >= 0);
+    }
+
+    /**
+     * Return the layer of the distinct values in the sorted RUNS.
+     */
+    private Layer merge(ArrayList<Layer> runs) throws IOException {
+        Layer result = new Layer(_layerLimit);
+        PriorityQueue<Layer.Reader> heads =
+            new PriorityQueue<>(Math.max(1, runs.size()),
+                                Comparator.comparingLong(Layer.Reader::head));
+        try {
+            for (Layer run : runs) {
+                Layer.Reader in = run.reader();
+                if (in.hasNext()) {
+                    heads.add(in);
+                } else {
+                    in.close();
+                }
+            }
+            long last = -1;
+            while (!heads.isEmpty()) {
+                Layer.Reader in = heads.poll();
+                long position = in.next();
+                if (position != last) {
+                    result.add(position);
+                    last = position;
+                }
+                if (in.hasNext()) {
+                    heads.add(in);
+                } else {
+                    in.close();
+                }
+            }
+            result.finish();
+            return result;
+        } catch (IOException | RuntimeException excp) {
+            result.delete();
+            throw excp;
+        } finally {
+            for (Layer.Reader in : heads) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Compute and store in VALUES the values of the positions in LAYER,
+     * all of whose successors are already in VALUES, using POOL.  LAYER
+     * is read in chunks of at most my layer limit, each divided among my
+     * threads.
+     */
+    private void label(ExecutorService pool, Layer layer, ByteBuffer values)
+        throws IOException {
+        long[] chunk = new long[Math.min(layer.size(), _layerLimit)];
+        try (Layer.Reader in = layer.reader()) {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                ArrayList<Future<Void>> parts = new ArrayList<>();
+                for (int t = 0; t < _threads; t += 1) {
+                    int lo = part(n, t), hi = part(n, t + 1);
+                    ByteBuffer mine = values.duplicate();
+                    parts.add(pool.submit(() -> {
+                        label(chunk, lo, hi, mine);
+                        return null;
+                    }));
+                }
+                for (Future<Void> part : parts) {
+                    get(part);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute and store in VALUES the values of the positions at
+     * CHUNK[LO .. HI-1], all of whose successors are already in VALUES.
+     */
+    private void label(long[] chunk, int lo, int hi, ByteBuffer values) {
+        PlayoutBoard position = new PlayoutBoard(), next = new PlayoutBoard();
+        position.clear(_size);
+        int[] moves = new int[_size * _size];
+        for (int i = lo; i < hi; i += 1) {
+            Tablebase.decode(chunk[i], _weights, position);
+            int numMoves = position.legalMoves(moves);
+            int bestWin = Integer.MAX_VALUE, worstLoss = 0;
+            for (int j = 0; j < numMoves; j += 1) {
+                next.copy(position);
+                next.play(moves[j]);
+                if (next.winner() != null) {
+                    bestWin = 1;
+                    break;
+                }
+                int value =
+                    values.get((int) Tablebase.index(next, _weights));
+                assert value != 0;
+                if (value < 0) {
+                    bestWin = Math.min(bestWin, 1 - value);
+                } else {
+                    worstLoss = Math.max(worstLoss, value + 1);
+                }
+            }
+            int value = bestWin < Integer.MAX_VALUE ? bestWin : -worstLoss;
+            values.put((int) chunk[i], (byte) value);
+        }
+    }
+
+    /**
+     * Return the start of part #T of N positions divided among my
+     * threads.
+     */
+    private int part(int n, int t) {
+        return (int) ((long) n * t / _threads);
+    }
+
+    /**
+     * Return the result of PART, rethrowing any exception it threw.
+     */
+    private static <T> T get(Future<T> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException excp) {
+            throw new IOException("interrupted");
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IOException(excp.getCause());
+        }
+    }
+
+    /**
+     * A sequence of position indices, held on the heap or, once it has
+     * more than a given number of entries, in a temporary file.  Entries
+     * are added with add until finish is called, and then read back in
+     * order through readers.
+     */
+    private static class Layer {
+
+        /**
+         * An empty layer that goes to a temporary file once it has more
+         * than LIMIT entries.
+         */
+        Layer(int limit) {
+            _limit = limit;
+            _positions = new long[Math.min(limit, INITIAL_CAPACITY)];
+        }
+
+        /**
+         * A finished layer holding POSITIONS[0 .. N-1], which is kept on
+         * the heap iff ONHEAP.
+         */
+        Layer(long[] positions, int n, boolean onHeap) throws IOException {
+            this(onHeap ? n : 0);
+            for (int i = 0; i < n; i += 1) {
+                add(positions[i]);
+            }
+            finish();
+        }
+
+        /**
+         * Append POSITION to me.
+         */
+        void add(long position) throws IOException {
+            if (_out == null && _size == _limit) {
+                spill();
+            }
+            if (_out != null) {
+                _out.writeLong(position);
+            } else {
+                if (_size == _positions.length) {
+                    _positions = Arrays.copyOf(_positions,
+                        (int) Math.min(_limit, 2L * _size));
+                }
+                _positions[_size] = position;
+            }
+            _size += 1;
+        }
+
+        /**
+         * Indicate that no more entries will be added to me.
+         */
+        void finish() throws IOException {
+            if (_out != null) {
+                _out.close();
+                _out = null;
+            }
+        }
+
+        /**
+         * Return my number of entries.
+         */
+        int size() {
+            return _size;
+        }
+
+        /**
+         * Return a new reader of my entries.
+         */
+        Reader reader() throws IOException {
+            return new Reader();
+        }
+
+        /**
+         * Release my storage.
+         */
+        void delete() {
+            _positions = null;
+            if (_file != null) {
+                _file.delete();
+            }
+        }
+
+        /**
+         * Move my entries to a new temporary file, to which all further
+         * entries go.
+         */
+        private void spill() throws IOException {
+            _file = File.createTempFile("jump61-layer", ".tmp");
+            _file.deleteOnExit();
+            _out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(_file)));
+            for (int i = 0; i < _size; i += 1) {
+                _out.writeLong(_positions[i]);
+            }
+            _positions = null;
+        }
+
+        /**
+         * Reads the entries of a finished layer in order.
+         */
+        class Reader implements Closeable {
+
+            /**
+             * A reader positioned at the first entry.
+             */
+            Reader() throws IOException {
+                if (_file != null) {
+                    _in = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(_file)));
+                }
+                advance();
+            }
+
+            /**
+             * Return true iff there are entries I have not returned.
+             */
+            boolean hasNext() {
+                return _hasHead;
+            }
+
+            /**
+             * Return the entry that next will return, assuming hasNext().
+             */
+            long head() {
+                return _head;
+            }
+
+            /**
+             * Return the next entry, assuming hasNext().
+             */
+            long next() throws IOException {
+                long result = _head;
+                advance();
+                return result;
+            }
+
+            /**
+             * Read as many of the next entries as fit into BUFFER, and
+             * return the number read.
+             */
+            int read(long[] buffer) throws IOException {
+                int n;
+                n = 0;
+                while (n < buffer.length && hasNext()) {
+                    buffer[n] = next();
+                    n += 1;
+                }
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (_in != null) {
+                    _in.close();
+                }
+            }
+
+            /**
+             * Read the entry after my current one, if any.
+             */
+            private void advance() throws IOException {
+                _hasHead = _count < _size;
+                if (_hasHead) {
+                    _head = _in == null ? _positions[_count] : _in.readLong();
+                    _count += 1;
+                }
+            }
+
+            /**
+             * The stream of entries, if my layer is in a file.
+             */
+            private DataInputStream _in;
+            /**
+             * Number of entries read so far.
+             */
+            private int _count;
+            /**
+             * True iff _head holds an entry not yet returned.
+             */
+            private boolean _hasHead;
+            /**
+             * The next entry to return.
+             */
+            private long _head;
+        }
+
+        /**
+         * Initial capacity of an empty layer on the heap.
+         */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * Largest number of entries kept on the heap.
+         */
+        private final int _limit;
+        /**
+         * Number of entries.
+         */
+        private int _size;
+        /**
+         * The entries, while kept on the heap, else null.
+         */
+        private long[] _positions;
+        /**
+         * The file holding the entries, once they are not on the heap.
+         */
+        private File _file;
+        /**
+         * The stream to _file, while entries are still being added to it.
+         */
+        private DataOutputStream _out;
+    }
+
+    /**
+     * Size of the boards solved.
+     */
+    private final int _size;
+    /**
+     * Number of threads used.
+     */
+    private final int _threads;
+    /**
+     * Largest number of positions in a chunk of a layer, in the runs of
+     * its successors on the heap, or in a layer kept on the heap.
+     */
+    private final int _layerLimit;
+    /**
+     * Place values of squares in position indices.
+     */
+    private final long[] _weights;
+
+}
@@ -0,0 +1,83 @@
+package jump61;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of TablebaseSolver and Tablebase.
+ *
+ * @author Aniketh Prasad
+ */
+public class TablebaseSolverTest {
+
+    /**
+     * Return a tablebase for 2x2 boards solved with THREADS threads and
+     * the layer limit LIMIT.
+     */
+    private static Tablebase solve(int threads, int limit)
+        throws IOException {
+        File file = File.createTempFile("jump61", ".tb");
+        file.deleteOnExit();
+        long solved = new TablebaseSolver(2, threads, limit).solve(file);
+        assertTrue("nothing solved", solved > 0);
+        Tablebase table = new Tablebase(file);
+        assertEquals(2, table.size());
+        return table;
+    }
+
+    /**
+     * Return the value of the position on BOARD, in which the game is
+     * not over, as defined in Tablebase, by exhaustive minimax search,
+     * checking that TABLES agree with it here and at every position
+     * reachable from here.
+     */
+    private static int minimax(Board board, Tablebase... tables) {
+        Side player = board.whoseMove();
+        int bestWin = Integer.MAX_VALUE, worstLoss = 0;
+        for (int n = 0; n < board.size() * board.size(); n += 1) {
+            if (!board.isLegal(player, n)) {
+                continue;
+            }
+            int token = board.makeMove(player, n);
+            if (board.getWinner() != null) {
+                bestWin = 1;
+            } else {
+                int value = minimax(board, tables);
+                if (value < 0) {
+                    bestWin = Math.min(bestWin, 1 - value);
+                } else {
+                    worstLoss = Math.max(worstLoss, value + 1);
+                }
+            }
+            board.unmakeMove(token);
+        }
+        int value = bestWin < Integer.MAX_VALUE ? bestWin : -worstLoss;
+        for (Tablebase table : tables) {
+            assertEquals("wrong value for\n" + board, value,
+                         table.probe(board));
+        }
+        return value;
+    }
+
+    @Test
+    public void testSolve2x2() throws IOException {
+        Tablebase inMemory = solve(1, 1 << 20);
+        Tablebase onDisk = solve(3, 2);
+        Board B = new Board(2);
+        assertTrue(minimax(B, inMemory, onDisk) != 0);
+        assertEquals(0, inMemory.probe(new Board(3)));
+        while (B.getWinner() == null) {
+            int n;
+            for (n = 3; !B.isLegal(B.whoseMove(), n); n -= 1) {
+                continue;
+            }
+            B.addSpot(B.whoseMove(), n);
+        }
+        assertEquals(0, inMemory.probe(B));
+    }
+
+}
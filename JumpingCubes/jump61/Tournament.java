@@ -0,0 +1,386 @@
+package jump61;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static jump61.GameException.error;
+import static jump61.Side.*;
+
+/**
+ * A series of games between two kinds of automated player, played
+ * without any display or text output, several at a time on a pool of
+ * threads.  Each thread plays its games in its own Game (and so on its
+ * own Board), with new players for each game, and the two players
+ * alternate colors from game to game.  Since each player's random seed
+ * depends only on the tournament's seed and the game's number, games
+ * limited by positions searched rather than time can be reproduced.
+ * At the end, a summary of wins, game lengths, and the time taken per
+ * move (and, for players that search, the depth and speed of their
+ * searches and how many of their moves pondering found) is printed.
+ * Players are told of every move, so that they may ponder.
+ *
+ * @author Aniketh Prasad
+ */
+class Tournament {
+
+    /**
+     * Names of the kinds of automated player.
+     */
+    static final String[] KINDS = { "ai", "mcts" };
+
+    /**
+     * A tournament of GAMES games on SIZE x SIZE boards between players
+     * of kinds FIRST and SECOND (elements of KINDS), with FIRST playing
+     * red in the even-numbered games, running PARALLEL games at a time.
+     * The players use the limits, thread counts, evaluation weights,
+     * tablebases, and opening books set in SETTINGS, and SEED seeds
+     * their random choices.
+     */
+    Tournament(Game settings, int size, String first, String second,
+               int games, int parallel, long seed) {
+        if (size < 2 || size > Defaults.MAX_BOARD_SIZE) {
+            throw error("size must be between 2 and %d",
+                        Defaults.MAX_BOARD_SIZE);
+        }
+        if (games < 1 || parallel < 1) {
+            throw error("numbers of games must be positive");
+        }
+        _settings = settings;
+        _size = size;
+        _kinds = new String[] { checkKind(first), checkKind(second) };
+        _games = games;
+        _parallel = parallel;
+        _seed = seed;
+    }
+
+    /**
+     * Record each game in RECORDER, or in no file if RECORDER is null.
+     */
+    void setRecorder(GameRecordWriter recorder) {
+        _recorder = recorder;
+    }
+
+    /**
+     * Play all games and print a summary of the results on OUT.
+     */
+    void run(PrintStream out) {
+        ExecutorService pool = Executors.newFixedThreadPool(_parallel);
+        long start = System.currentTimeMillis();
+        AtomicInteger next = new AtomicInteger();
+        ArrayList<Future<ArrayList<Result>>> workers = new ArrayList<>();
+        for (int w = 0; w < _parallel; w += 1) {
+            workers.add(pool.submit(() -> play(next)));
+        }
+        ArrayList<Result> results = new ArrayList<>();
+        try {
+            for (Future<ArrayList<Result>> worker : workers) {
+                results.addAll(worker.get());
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw error("tournament interrupted");
+        } catch (ExecutionException excp) {
+            throw error("tournament failed: %s", excp.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        summarize(results, System.currentTimeMillis() - start, out);
+    }
+
+    /**
+     * Play games of the tournament, taking the number of each game from
+     * NEXT until all have been played, and return their results.  The
+     * games are played in one Game, and the automated players of each
+     * game reuse the transposition tables of those of the previous one,
+     * so that the tables are allocated once per thread rather than once
+     * per game.
+     */
+    private ArrayList<Result> play(AtomicInteger next) {
+        Game game = new Game((prompt) -> null, (board) -> { }, SILENT,
+                             false);
+        game.setTimeLimit(_settings.timeLimit());
+        game.setNodeLimit(_settings.nodeLimit());
+        game.setPlayoutLimit(_settings.playoutLimit());
+        game.setThreads(_settings.threads());
+        game.setPonder(_settings.ponder());
+        game.setStatsLevel(_settings.statsLevel());
+        game.setWeights(_settings.weights());
+        game.setTablebaseDirectory(_settings.tablebaseDirectory());
+        game.setBookDirectory(_settings.bookDirectory());
+        game.setPositionDatabase(_settings.positionDatabase());
+        game.setSize(_size);
+
+        TranspositionTable[] tables = new TranspositionTable[2];
+        ArrayList<Result> results = new ArrayList<>();
+        for (int k = next.getAndIncrement(); k < _games;
+             k = next.getAndIncrement()) {
+            results.add(play(k, game, tables));
+        }
+        return results;
+    }
+
+    /**
+     * Play game #K of the tournament in GAME, and return its result.  The
+     * game's players are new, and seeded by game number (see seed), so
+     * that a game does not depend on which games were played before it
+     * in GAME.  An automated player #P (0 for the first, 1 for the
+     * second) uses TABLES[P], cleared, as its transposition table,
+     * allocating it if it is null.
+     */
+    private Result play(int k, Game game, TranspositionTable[] tables) {
+        game.clear();
+        Result result = new Result();
+        result._red = k % 2;
+        GameRecord record = new GameRecord();
+        record.clear(_size, seed(k, RED), seed(k, BLUE));
+        Player[] playing = new Player[2];
+        try {
+            for (int p = 0; p < 2; p += 1) {
+                Side color = p == result._red ? RED : BLUE;
+                TranspositionTable table = null;
+                if (_kinds[p].equals("ai")) {
+                    if (tables[p] == null) {
+                        tables[p] =
+                            new TranspositionTable(Defaults.TABLE_SIZE_LOG2);
+                    } else {
+                        tables[p].clear();
+                    }
+                    table = tables[p];
+                }
+                playing[p] =
+                    newPlayer(_kinds[p], game, color, seed(k, color), table);
+            }
+
+            Board board = game.getBoard();
+            while (board.getWinner() == null) {
+                int p = board.whoseMove() == RED ? result._red
+                    : 1 - result._red;
+                long before = System.nanoTime();
+                int move = playing[p].chooseMove();
+                long time = System.nanoTime() - before;
+                result._moveTime[p] += time;
+                result._maxMoveTime[p] =
+                    Math.max(result._maxMoveTime[p], time);
+                result._moves[p] += 1;
+                if (playing[p] instanceof AI) {
+                    SearchStats stats = ((AI) playing[p]).lastStats();
+                    result._depth[p] += stats.depth();
+                    result._nodes[p] += stats.nodes();
+                    if (stats.source().equals("ponder")) {
+                        result._ponderHits[p] += 1;
+                    }
+                }
+                record.add(move);
+                Side mover = board.whoseMove();
+                game.makeMove(move);
+                for (Player player : playing) {
+                    player.moveMade(mover, move);
+                }
+            }
+            result._winner = board.getWinner() == RED ? result._red
+                : 1 - result._red;
+            record.setWinner(board.getWinner());
+        } finally {
+            for (Player player : playing) {
+                if (player != null) {
+                    player.retire();
+                }
+            }
+        }
+        if (_recorder != null) {
+            try {
+                _recorder.write(record);
+            } catch (IOException excp) {
+                throw error("could not record game: %s", excp.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the random seed of the player of COLOR in game #K.
+     */
+    private long seed(int k, Side color) {
+        return _seed + 2 * k + (color == RED ? 0 : 1);
+    }
+
+    /**
+     * Print a summary of RESULTS, from a tournament that took ELAPSED
+     * milliseconds, on OUT.
+     */
+    private void summarize(ArrayList<Result> results, long elapsed,
+                           PrintStream out) {
+        int[] wins = new int[2], redWins = new int[2];
+        long[] moves = new long[2], moveTime = new long[2],
+            maxMoveTime = new long[2], depth = new long[2],
+            nodes = new long[2], ponderHits = new long[2];
+        int minLength = Integer.MAX_VALUE, maxLength = 0;
+        for (Result r : results) {
+            wins[r._winner] += 1;
+            if (r._winner == r._red) {
+                redWins[r._winner] += 1;
+            }
+            for (int p = 0; p < 2; p += 1) {
+                moves[p] += r._moves[p];
+                moveTime[p] += r._moveTime[p];
+                maxMoveTime[p] = Math.max(maxMoveTime[p], r._maxMoveTime[p]);
+                depth[p] += r._depth[p];
+                nodes[p] += r._nodes[p];
+                ponderHits[p] += r._ponderHits[p];
+            }
+            int length = r._moves[0] + r._moves[1];
+            minLength = Math.min(minLength, length);
+            maxLength = Math.max(maxLength, length);
+        }
+        out.printf("%d games on %dx%d boards in %.1f s%n", results.size(),
+                   _size, _size, elapsed / 1000.0);
+        for (int p = 0; p < 2; p += 1) {
+            out.printf("%s (%s): %d wins (%d as red, %d as blue); "
+                       + "move time mean %.2f ms, max %.2f ms%n",
+                       p == 0 ? "first" : "second", _kinds[p], wins[p],
+                       redWins[p], wins[p] - redWins[p],
+                       moves[p] == 0 ? 0.0 : moveTime[p] / 1e6 / moves[p],
+                       maxMoveTime[p] / 1e6);
+            if (_kinds[p].equals("ai") && moves[p] > 0) {
+                out.printf("    search depth mean %.1f, %.0f positions "
+                           + "per second%n", (double) depth[p] / moves[p],
+                           moveTime[p] == 0 ? 0.0
+                           : nodes[p] * 1e9 / moveTime[p]);
+                if (_settings.ponder()) {
+                    out.printf("    %d moves found by pondering%n",
+                               ponderHits[p]);
+                }
+            }
+        }
+        out.printf("game length mean %.1f moves, min %d, max %d%n",
+                   (double) (moves[0] + moves[1]) / results.size(),
+                   minLength, maxLength);
+    }
+
+    /**
+     * Return KIND if it is one of KINDS, and otherwise throw a
+     * GameException.
+     */
+    private static String checkKind(String kind) {
+        for (String k : KINDS) {
+            if (k.equals(kind)) {
+                return kind;
+            }
+        }
+        throw error("unknown kind of player: %s", kind);
+    }
+
+    /**
+     * Return a new player of kind KIND (in KINDS) for COLOR in GAME,
+     * seeded with SEED.  An AI uses TABLE as its transposition table.
+     */
+    private static Player newPlayer(String kind, Game game, Side color,
+                                    long seed, TranspositionTable table) {
+        if (kind.equals("mcts")) {
+            return new MonteCarloPlayer(game, color, seed);
+        } else {
+            return new AI(game, color, seed, table);
+        }
+    }
+
+    /**
+     * The outcome of one game.  Arrays are indexed by player (0 for the
+     * first, 1 for the second).
+     */
+    private static class Result {
+        /**
+         * The player that played red.
+         */
+        private int _red;
+        /**
+         * The player that won.
+         */
+        private int _winner;
+        /**
+         * Number of moves chosen by each player.
+         */
+        private int[] _moves = new int[2];
+        /**
+         * Total time spent choosing moves by each player, in nanoseconds.
+         */
+        private long[] _moveTime = new long[2];
+        /**
+         * Longest time spent choosing one move by each player, in
+         * nanoseconds.
+         */
+        private long[] _maxMoveTime = new long[2];
+        /**
+         * Sum over the moves chosen by each player of the depths of the
+         * searches that chose them (see SearchStats), for automated
+         * players that search.
+         */
+        private long[] _depth = new long[2];
+        /**
+         * Number of positions searched by each player, for automated
+         * players that search.
+         */
+        private long[] _nodes = new long[2];
+        /**
+         * Number of moves chosen by each player that came from searches
+         * made while the opponent was choosing a move (see AI.moveMade).
+         */
+        private int[] _ponderHits = new int[2];
+    }
+
+    /**
+     * A Reporter that discards everything.
+     */
+    private static final Reporter SILENT = new Reporter() {
+        @Override
+        public void announceWin(Side side) {
+        }
+
+        @Override
+        public void announceMove(int row, int col) {
+        }
+
+        @Override
+        public void msg(String format, Object... args) {
+        }
+
+        @Override
+        public void err(String format, Object... args) {
+        }
+    };
+
+    /**
+     * Source of the players' settings.
+     */
+    private final Game _settings;
+    /**
+     * Size of the boards played on.
+     */
+    private final int _size;
+    /**
+     * Kinds of the first and second players.
+     */
+    private final String[] _kinds;
+    /**
+     * Number of games to play.
+     */
+    private final int _games;
+    /**
+     * Number of games played at once.
+     */
+    private final int _parallel;
+    /**
+     * Seed for the players' random choices.
+     */
+    private final long _seed;
+    /**
+     * Where games are recorded, or null.
+     */
+    private GameRecordWriter _recorder;
+
+}
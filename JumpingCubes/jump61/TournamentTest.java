@@ -0,0 +1,37 @@
+package jump61;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of Tournament.
+ *
+ * @author Aniketh Prasad
+ */
+public class TournamentTest {
+
+    @Test
+    public void testPonder() {
+        Game settings = new Game((prompt) -> null, (board) -> { },
+                                 new TextReporter(), false);
+        settings.setTimeLimit(40);
+        settings.setPonder(true);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new Tournament(settings, 4, "ai", "ai", 2, 2, 0)
+            .run(new PrintStream(output, true));
+        String summary = output.toString();
+        int hits = 0;
+        for (String line : summary.split("\n")) {
+            line = line.trim();
+            if (line.endsWith("moves found by pondering")) {
+                hits += Integer.parseInt(line.split(" ")[0]);
+            }
+        }
+        assertTrue("no ponder hits in\n" + summary, hits > 0);
+    }
+
+}
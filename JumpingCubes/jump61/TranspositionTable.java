@@ -0,0 +1,170 @@
+package jump61;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of the results of searching positions, indexed by
+ * position hash (the AI uses Board.canonicalHash, so that positions
+ * related by symmetry share an entry).  Each entry records the depth to
+ * which its position was searched, the value found, whether that value
+ * is exact or only a bound, and the best move found.
+ * <p>
+ * An entry is stored as two longs: its packed data and the exclusive or
+ * of that data with the position's hash.  A probe accepts an entry only
+ * if the two agree, so an entry torn by concurrent writers reads as a
+ * miss, and the table may be shared between searching threads without
+ * locking.
+ *
+ * @author Aniketh Prasad
+ */
+class TranspositionTable {
+
+    /**
+     * Bound type: the entry's value is the exact value of the position.
+     */
+    static final int EXACT = 1;
+    /**
+     * Bound type: the position's value is at least the entry's value.
+     */
+    static final int LOWER = 2;
+    /**
+     * Bound type: the position's value is at most the entry's value.
+     */
+    static final int UPPER = 3;
+
+    /**
+     * Positions of the fields of a packed entry.  The value occupies the
+     * low-order 32 bits.
+     */
+    private static final int MOVE_SHIFT = 32, DEPTH_SHIFT = 40,
+        BOUND_SHIFT = 48, AGE_SHIFT = 50;
+    /**
+     * Masks for the move, depth, bound and age fields of an entry, once
+     * shifted to the low-order bits.
+     */
+    private static final int MOVE_MASK = 0xff, DEPTH_MASK = 0xff,
+        BOUND_MASK = 0x3, AGE_MASK = 0xff;
+
+    /**
+     * Packed entries, as described in the class comment.
+     */
+    private final long[] _data;
+    /**
+     * Exclusive ors of the entries in _data with the hashes of their
+     * positions.
+     */
+    private final long[] _checks;
+    /**
+     * Mask reducing a hash to an index into _data.
+     */
+    private final int _mask;
+    /**
+     * The age of the current search (see newSearch), modulo AGE_MASK + 1.
+     */
+    private int _age;
+
+    /**
+     * A new, empty table holding 2**LOG2SIZE entries.
+     */
+    TranspositionTable(int log2Size) {
+        _data = new long[1 << log2Size];
+        _checks = new long[1 << log2Size];
+        _mask = (1 << log2Size) - 1;
+    }
+
+    /**
+     * Record the start of a new search.  Entries from previous searches
+     * remain available, but are replaced in preference to current ones.
+     */
+    void newSearch() {
+        _age = (_age + 1) & AGE_MASK;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    void clear() {
+        Arrays.fill(_data, 0);
+        Arrays.fill(_checks, 0);
+    }
+
+    /**
+     * Return the packed entry for the position whose hash is KEY, or 0 if
+     * there is none.  Use value, move, depth and bound to unpack it.
+     */
+    long probe(long key) {
+        int i = index(key);
+        long data = _data[i];
+        if (data != 0 && (data ^ _checks[i]) == key) {
+            return data;
+        }
+        return 0;
+    }
+
+    /**
+     * Record that the position whose hash is KEY, searched to DEPTH, has
+     * a value VALUE, which is exact or a bound as indicated by BOUND
+     * (EXACT, LOWER, or UPPER), and best move MOVE (-1 if none).  An
+     * existing entry for another position is replaced only if it comes
+     * from an earlier search or was searched no deeper.
+     */
+    void store(long key, int depth, int bound, int value, int move) {
+        int i = index(key);
+        long old = _data[i];
+        if (old != 0 && (old ^ _checks[i]) != key
+            && age(old) == _age && depth(old) > depth) {
+            return;
+        }
+        long data = (value & 0xffffffffL)
+            | (long) ((move + 1) & MOVE_MASK) << MOVE_SHIFT
+            | (long) (depth & DEPTH_MASK) << DEPTH_SHIFT
+            | (long) bound << BOUND_SHIFT
+            | (long) _age << AGE_SHIFT;
+        _data[i] = data;
+        _checks[i] = data ^ key;
+    }
+
+    /**
+     * Return the value recorded in packed entry ENTRY.
+     */
+    static int value(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Return the best move recorded in packed entry ENTRY, or -1 if none.
+     */
+    static int move(long entry) {
+        return (int) (entry >>> MOVE_SHIFT & MOVE_MASK) - 1;
+    }
+
+    /**
+     * Return the search depth recorded in packed entry ENTRY.
+     */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT & DEPTH_MASK);
+    }
+
+    /**
+     * Return the bound type (EXACT, LOWER, or UPPER) of packed entry
+     * ENTRY.
+     */
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT & BOUND_MASK);
+    }
+
+    /**
+     * Return the age of the search that made packed entry ENTRY.
+     */
+    private static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT & AGE_MASK);
+    }
+
+    /**
+     * Return the index in _data for the position whose hash is KEY.
+     */
+    private int index(long key) {
+        return (int) (key ^ (key >>> Integer.SIZE)) & _mask;
+    }
+
+}
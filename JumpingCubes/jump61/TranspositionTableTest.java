@@ -0,0 +1,46 @@
+package jump61;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of TranspositionTables.
+ *
+ * @author Aniketh Prasad
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreProbe() {
+        TranspositionTable T = new TranspositionTable(4);
+        long key = 0x123456789abcdefL;
+        assertEquals("empty table hit", 0, T.probe(key));
+        T.store(key, 3, TranspositionTable.LOWER, -17, 42);
+        long entry = T.probe(key);
+        assertNotEquals("stored entry missing", 0, entry);
+        assertEquals(-17, TranspositionTable.value(entry));
+        assertEquals(42, TranspositionTable.move(entry));
+        assertEquals(3, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER,
+                TranspositionTable.bound(entry));
+        assertEquals("wrong key hit", 0, T.probe(key + 1));
+        T.store(key, 1, TranspositionTable.EXACT, 5, -1);
+        assertEquals(-1, TranspositionTable.move(T.probe(key)));
+    }
+
+    @Test
+    public void testReplacement() {
+        TranspositionTable T = new TranspositionTable(2);
+        long key1 = 1, key2 = 1 + (1L << 40);
+        T.store(key1, 5, TranspositionTable.EXACT, 1, 0);
+        T.store(key2, 2, TranspositionTable.EXACT, 2, 0);
+        assertNotEquals("deeper entry replaced", 0, T.probe(key1));
+        assertEquals("shallower entry stored", 0, T.probe(key2));
+        T.newSearch();
+        T.store(key2, 2, TranspositionTable.EXACT, 2, 0);
+        assertEquals("stale entry kept", 0, T.probe(key1));
+        assertEquals(2, TranspositionTable.value(T.probe(key2)));
+    }
+
+}
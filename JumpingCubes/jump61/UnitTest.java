@@ -15,7 +15,19 @@ public class UnitTest {
      * the arguments of runClasses to run other JUnit tests.
      */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(jump61.BoardTest.class));
+        System.exit(textui.runClasses(jump61.BoardTest.class,
+                jump61.TranspositionTableTest.class,
+                jump61.PerftTest.class,
+                jump61.GameRecordTest.class,
+                jump61.OpeningBookTest.class,
+                jump61.EvalTunerTest.class,
+                jump61.TablebaseSolverTest.class,
+                jump61.PositionDatabaseTest.class,
+                jump61.SearchStatsTest.class,
+                jump61.AITest.class,
+                jump61.MoveOrdererTest.class,
+                jump61.PlayoutBoardTest.class,
+                jump61.TournamentTest.class));
     }
 
     @Test